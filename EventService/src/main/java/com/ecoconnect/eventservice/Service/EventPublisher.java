@@ -37,7 +37,8 @@ public class EventPublisher {
             );
 
             String jsonMessage = objectMapper.writeValueAsString(message);
-            kafkaTemplate.send("event-notifications", jsonMessage);
+            // Keyed by eventId so all messages about one event stay on one partition, in order
+            kafkaTemplate.send("event-notifications", eventId, jsonMessage);
             System.out.println(messageType + "message has been sent");
 
         } catch (Exception e) {
@@ -0,0 +1,100 @@
+package com.ecoconnect.feedservice.Config;
+
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Value codec for the feed's Redis structures.
+ * Strings (IDs, names) are stored as raw UTF-8. Other values are stored as a 0xFF tag byte,
+ * a type byte and a compact payload. 0xFF never starts valid UTF-8, so the two can't be confused.
+ * Values written by the old JDK-serialization template start with 0xAC 0xED, which is also never
+ * valid UTF-8. They are still decoded while legacy reads are enabled, so existing data keeps working.
+ */
+public class FeedRedisCodec implements RedisSerializer<Object> {
+
+    private static final byte TAG = (byte) 0xFF;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_BYTES = 2;
+
+    private static final byte JDK_MAGIC_0 = (byte) 0xAC;
+    private static final byte JDK_MAGIC_1 = (byte) 0xED;
+
+    private final JdkSerializationRedisSerializer legacy = new JdkSerializationRedisSerializer();
+    private final boolean legacyReads;
+
+    public FeedRedisCodec(boolean legacyReads) {
+        this.legacyReads = legacyReads;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null)
+            return new byte[0];
+        if (value instanceof String string)
+            return string.getBytes(StandardCharsets.UTF_8);
+        if (value instanceof Long || value instanceof Integer)
+            return encodeLong(((Number) value).longValue());
+        if (value instanceof byte[] bytes) {
+            byte[] encoded = new byte[bytes.length + 2];
+            encoded[0] = TAG;
+            encoded[1] = TYPE_BYTES;
+            System.arraycopy(bytes, 0, encoded, 2, bytes.length);
+            return encoded;
+        }
+        throw new SerializationException("Unsupported feed Redis value type: " + value.getClass().getName());
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0)
+            return null;
+        if (isLegacy(bytes)) {
+            if (!legacyReads)
+                throw new SerializationException("JDK-serialized value found with legacy reads disabled");
+            return legacy.deserialize(bytes);
+        }
+        if (bytes[0] == TAG && bytes.length >= 2) {
+            if (bytes[1] == TYPE_LONG)
+                return decodeLong(bytes);
+            if (bytes[1] == TYPE_BYTES)
+                return Arrays.copyOfRange(bytes, 2, bytes.length);
+            throw new SerializationException("Unknown feed Redis value type: " + bytes[1]);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static boolean isLegacy(byte[] bytes) {
+        return bytes.length >= 2 && bytes[0] == JDK_MAGIC_0 && bytes[1] == JDK_MAGIC_1;
+    }
+
+    // Zig-zag varint, so small and negative numbers both stay short
+    private static byte[] encodeLong(long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        byte[] buffer = new byte[12];
+        buffer[0] = TAG;
+        buffer[1] = TYPE_LONG;
+        int position = 2;
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[position++] = (byte) zigzag;
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private static long decodeLong(byte[] bytes) {
+        long zigzag = 0;
+        int shift = 0;
+        for (int i = 2; i < bytes.length; i++) {
+            zigzag |= (long) (bytes[i] & 0x7F) << shift;
+            if ((bytes[i] & 0x80) == 0)
+                break;
+            shift += 7;
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecoconnect.feedservice.Config;
+
+import com.ecoconnect.feedservice.Service.DeadLetterReplayer;
+import com.ecoconnect.feedservice.Service.EventRetryProcessor;
+import com.ecoconnect.feedservice.Service.PostCacheInvalidationListener;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ContainerPartitionPausingBackOffManager;
+import org.springframework.kafka.listener.ContainerPausingBackOffHandler;
+import org.springframework.kafka.listener.KafkaConsumerBackoffManager;
+import org.springframework.kafka.listener.ListenerContainerPauseService;
+import org.springframework.kafka.listener.ListenerContainerRegistry;
+import org.springframework.kafka.listener.SeekUtils;
+import org.springframework.kafka.KafkaException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class KafkaConfig {
+
+    @Value("${feed.kafka.batch.retry-interval-ms:1000}")
+    private long retryIntervalMs;
+
+    @Value("${feed.kafka.batch.max-retries:3}")
+    private long maxRetries;
+
+    @Value("${feed.kafka.retry.tiers:3}")
+    private int retryTiers;
+
+    @Value("${feed.kafka.retry.partitions:3}")
+    private int retryPartitions;
+
+    // Hands listeners a whole poll at a time; offsets are committed once the listener returns.
+    // Failing records are moved to retry topics by EventRetryProcessor, so this backoff only covers
+    // failures to reach Kafka itself. The listener then names the record it couldn't hand off
+    // (BatchListenerFailedException): the records before it are committed, and once the backoff is used
+    // up it goes to the dead-letter topic. Nothing is committed unless it was applied or handed off
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<?, ?> kafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(deadLetteringErrorHandler(kafkaTemplate));
+        return factory;
+    }
+
+    // If the dead-letter topic can't be reached either, recovery fails and the record is retried again.
+    // A retry tier backing off isn't a failure: the record stays uncommitted and is polled again once its partition resumes
+    private DefaultErrorHandler deadLetteringErrorHandler(KafkaTemplate<?, ?> kafkaTemplate) {
+        DeadLetterPublishingRecoverer deadLetters = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(EventRetryProcessor.deadLetterTopic(EventRetryProcessor.originalTopic(record)), -1));
+        ConsumerRecordRecoverer recoverer = (record, e) -> {
+            if (SeekUtils.isBackoffException(e))
+                throw new KafkaException("Partition backing off", e);
+            deadLetters.accept(record, e);
+        };
+        return new DefaultErrorHandler(recoverer, new FixedBackOff(retryIntervalMs, maxRetries));
+    }
+
+    // Pauses a retry tier's partition until its next record is due, and resumes it then
+    @Bean
+    public KafkaConsumerBackoffManager retryBackoffManager(ListenerContainerRegistry registry) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("feed-retry-resume-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        return new ContainerPartitionPausingBackOffManager(registry,
+                new ContainerPausingBackOffHandler(new ListenerContainerPauseService(registry, scheduler)));
+    }
+
+    // One record at a time for the retry tiers (one container per tier, see EventRetryProcessor)
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> retryListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<?, ?> kafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setConcurrency(1);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        factory.setCommonErrorHandler(deadLetteringErrorHandler(kafkaTemplate));
+        return factory;
+    }
+
+    // Retry tiers and dead-letter topics of the feed listeners, created on startup if missing
+    @Bean
+    public KafkaAdmin.NewTopics feedRetryTopics() {
+        List<NewTopic> topics = new ArrayList<>();
+        for (String topic : DeadLetterReplayer.LISTENER_TOPICS) {
+            for (int tier = 0; tier < retryTiers; tier++)
+                topics.add(TopicBuilder.name(EventRetryProcessor.retryTopic(topic, tier)).partitions(retryPartitions).build());
+            topics.add(TopicBuilder.name(EventRetryProcessor.deadLetterTopic(topic)).partitions(retryPartitions).build());
+        }
+        return new KafkaAdmin.NewTopics(topics.toArray(NewTopic[]::new));
+    }
+
+    // Every instance reads it from its end, so records are only needed for a short while
+    @Bean
+    public NewTopic feedPostInvalidationTopic() {
+        return TopicBuilder.name(PostCacheInvalidationListener.TOPIC).partitions(retryPartitions)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(Duration.ofHours(1).toMillis())).build();
+    }
+}
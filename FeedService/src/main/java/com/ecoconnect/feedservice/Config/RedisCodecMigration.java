@@ -0,0 +1,98 @@
+package com.ecoconnect.feedservice.Config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-off migration from the JDK-serialized keys written by the old template to the FeedRedisCodec layout.
+ * Each legacy key is re-encoded into its UTF-8 named counterpart, merging with anything already written
+ * there, keeping its TTL, and then deleted. It runs in the background at startup when enabled, and is safe
+ * to run repeatedly on several instances at once.
+ */
+@Component
+public class RedisCodecMigration implements ApplicationRunner {
+
+    private final RedisConnectionFactory connectionFactory;
+    private final FeedRedisCodec codec;
+
+    @Value("${feed.redis.codec.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    @Autowired
+    public RedisCodecMigration(RedisConnectionFactory connectionFactory, FeedRedisCodec codec) {
+        this.connectionFactory = connectionFactory;
+        this.codec = codec;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!migrateOnStartup)
+            return;
+
+        Thread worker = new Thread(this::migrate, "redis-codec-migration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void migrate() {
+        int migrated = 0;
+        try (RedisConnection connection = connectionFactory.getConnection();
+             Cursor<byte[]> keys = connection.keyCommands().scan(ScanOptions.scanOptions().count(1000).build())) {
+            while (keys.hasNext()) {
+                byte[] legacyKey = keys.next();
+                if (!FeedRedisCodec.isLegacy(legacyKey))
+                    continue;
+                migrateKey(connection, legacyKey);
+                migrated++;
+            }
+            System.out.println("Redis codec migration finished, migrated " + migrated + " keys");
+        } catch (Exception e) {
+            System.err.println("Redis codec migration stopped after " + migrated + " keys: " + e.getMessage());
+        }
+    }
+
+    private void migrateKey(RedisConnection connection, byte[] legacyKey) {
+        byte[] key = ((String) codec.deserialize(legacyKey)).getBytes(StandardCharsets.UTF_8);
+        DataType type = connection.keyCommands().type(legacyKey);
+        Long ttl = connection.keyCommands().pTtl(legacyKey);
+
+        if (type == DataType.SET) {
+            Set<byte[]> members = connection.setCommands().sMembers(legacyKey);
+            if (members != null)
+                members.forEach(member -> connection.setCommands().sAdd(key, reencode(member)));
+        } else if (type == DataType.ZSET) {
+            Set<Tuple> tuples = connection.zSetCommands().zRangeWithScores(legacyKey, 0, -1);
+            if (tuples != null)
+                tuples.forEach(tuple -> connection.zSetCommands().zAdd(key, tuple.getScore(), reencode(tuple.getValue())));
+        } else if (type == DataType.HASH) {
+            Map<byte[], byte[]> entries = connection.hashCommands().hGetAll(legacyKey);
+            if (entries != null)
+                entries.forEach((field, value) -> connection.hashCommands().hSet(key, reencode(field), reencode(value)));
+        } else if (type == DataType.STRING) {
+            byte[] value = connection.stringCommands().get(legacyKey);
+            if (value != null)
+                connection.stringCommands().setNX(key, reencode(value));
+        }
+
+        if (ttl != null && ttl > 0)
+            connection.keyCommands().pExpire(key, ttl);
+        connection.keyCommands().del(legacyKey);
+    }
+
+    private byte[] reencode(byte[] value) {
+        return codec.serialize(codec.deserialize(value));
+    }
+}
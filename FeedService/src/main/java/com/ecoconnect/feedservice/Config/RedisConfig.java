@@ -7,7 +7,10 @@ import org.springframework.data.redis.connection.RedisPassword;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
@@ -21,6 +24,10 @@ public class RedisConfig {
     @Value("${spring.data.redis.password}")
     private String redisPassword;
 
+    // Keep decoding JDK-serialized values written before the codec switch
+    @Value("${feed.redis.codec.legacy-reads:true}")
+    private boolean legacyReads;
+
     @Bean
     public LettuceConnectionFactory redisConnectionFactory() {
         RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(redisHost, redisPort);
@@ -32,10 +39,34 @@ public class RedisConfig {
         return new LettuceConnectionFactory(config, clientConfig);
     }
 
+    @Bean
+    public FeedRedisCodec feedRedisCodec() {
+        return new FeedRedisCodec(legacyReads);
+    }
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate() {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(redisConnectionFactory());
+
+        // Keys and IDs as plain UTF-8, everything else through the compact codec
+        template.setKeySerializer(StringRedisSerializer.UTF_8);
+        template.setValueSerializer(feedRedisCodec());
+        template.setHashKeySerializer(feedRedisCodec());
+        template.setHashValueSerializer(feedRedisCodec());
         return template;
     }
+
+    // Same key/value layout as redisTemplate, for the non-blocking feed read path
+    @Bean
+    public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate() {
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(feedRedisCodec())
+                .key(StringRedisSerializer.UTF_8)
+                .value(feedRedisCodec())
+                .hashKey(feedRedisCodec())
+                .hashValue(feedRedisCodec())
+                .build();
+        return new ReactiveRedisTemplate<>(redisConnectionFactory(), context);
+    }
 }
@@ -0,0 +1,172 @@
+package com.ecoconnect.feedservice.Config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the feed's Redis working set against the size of the hosted tier.
+ * Every structure is bounded where it is written: recent_posts:*, timeline:* and ranked:* are trimmed
+ * to their caps and expire after a period without activity (feed.recent-posts.ttl, feed.timeline.ttl),
+ * followees_bm:* expires a day after it was loaded, seen:* and affinity:* have their own TTLs, and the
+ * retrying:* hashes only hold keys with events in the retry tiers. This component periodically SCANs the keyspace and
+ * reports the key count and an estimated size per key prefix (the part before the first ':'), as the
+ * "feed.redis.keys" and "feed.redis.bytes" gauges. Sizes are the mean MEMORY USAGE of a sample of each
+ * prefix's keys times its key count. At startup it also drops structures older versions left behind: the
+ * "posts" hash written on edits and the followees:* sets replaced by followees_bm:*.
+ */
+@Component
+public class RedisMemoryBudget implements ApplicationRunner {
+
+    static final String LEGACY_POSTS_HASH = "posts";
+    static final String LEGACY_FOLLOWEES_PATTERN = "followees:*";
+
+    private final RedisConnectionFactory connectionFactory;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, PrefixUsage> usageByPrefix = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "redis-memory-budget");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${feed.memory.budget-bytes:31457280}")
+    private long budgetBytes;
+
+    @Value("${feed.memory.report-interval:PT10M}")
+    private Duration reportInterval;
+
+    @Value("${feed.memory.sample-per-prefix:50}")
+    private int samplePerPrefix;
+
+    @Autowired
+    public RedisMemoryBudget(RedisConnectionFactory connectionFactory, MeterRegistry meterRegistry) {
+        this.connectionFactory = connectionFactory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        scheduler.execute(this::dropLegacyStructures);
+        scheduler.scheduleWithFixedDelay(this::report, 0, reportInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void dropLegacyStructures() {
+        int dropped = 0;
+        try (RedisConnection connection = connectionFactory.getConnection();
+             Cursor<byte[]> keys = connection.keyCommands().scan(ScanOptions.scanOptions().match(LEGACY_FOLLOWEES_PATTERN).count(1000).build())) {
+            Long deleted = connection.keyCommands().unlink(LEGACY_POSTS_HASH.getBytes(StandardCharsets.UTF_8));
+            dropped += deleted != null ? deleted.intValue() : 0;
+            while (keys.hasNext()) {
+                connection.keyCommands().unlink(keys.next());
+                dropped++;
+            }
+            if (dropped > 0)
+                System.out.println("Dropped " + dropped + " legacy Redis keys");
+        } catch (Exception e) {
+            System.err.println("Dropping legacy Redis keys stopped after " + dropped + " keys: " + e.getMessage());
+        }
+    }
+
+    // Key count and estimated bytes per prefix; the gauges keep the last report
+    public Map<String, Map<String, Long>> report() {
+        Map<String, long[]> scanned = new TreeMap<>(); // prefix -> {keys, sampled, sampledBytes}
+        try (RedisConnection connection = connectionFactory.getConnection();
+             Cursor<byte[]> keys = connection.keyCommands().scan(ScanOptions.scanOptions().count(1000).build())) {
+            while (keys.hasNext()) {
+                byte[] key = keys.next();
+                long[] counts = scanned.computeIfAbsent(prefixOf(key), prefix -> new long[3]);
+                counts[0]++;
+                if (counts[1] < samplePerPrefix) {
+                    Long bytes = memoryUsage(connection, key);
+                    if (bytes != null) {
+                        counts[1]++;
+                        counts[2] += bytes;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Redis memory report failed: " + e.getMessage());
+            return Map.of();
+        }
+
+        Map<String, Map<String, Long>> report = new TreeMap<>();
+        long totalBytes = 0;
+        for (Map.Entry<String, long[]> entry : scanned.entrySet()) {
+            long[] counts = entry.getValue();
+            long bytes = counts[1] > 0 ? counts[2] / counts[1] * counts[0] : 0;
+            totalBytes += bytes;
+            usage(entry.getKey()).update(counts[0], bytes);
+            report.put(entry.getKey(), Map.of("keys", counts[0], "bytes", bytes));
+        }
+        // Prefixes that no longer have keys report zero
+        usageByPrefix.forEach((prefix, usage) -> {
+            if (!scanned.containsKey(prefix))
+                usage.update(0, 0);
+        });
+
+        System.out.println("Redis memory: ~" + totalBytes + " of " + budgetBytes + " bytes " + report);
+        if (totalBytes > budgetBytes)
+            System.err.println("Redis memory estimate of " + totalBytes + " bytes is over the budget of " + budgetBytes
+                    + " bytes; lower feed.timeline.ttl or feed.recent-posts.ttl, or the per-key caps");
+        return report;
+    }
+
+    // MEMORY USAGE isn't available on every hosted tier; keys without a figure are left out of the sample
+    private static Long memoryUsage(RedisConnection connection, byte[] key) {
+        try {
+            Object bytes = connection.execute("MEMORY", "USAGE".getBytes(StandardCharsets.UTF_8), key);
+            return bytes instanceof Number number ? number.longValue() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String prefixOf(byte[] key) {
+        String name = new String(key, StandardCharsets.UTF_8);
+        int colon = name.indexOf(':');
+        return colon > 0 ? name.substring(0, colon) : name;
+    }
+
+    private PrefixUsage usage(String prefix) {
+        return usageByPrefix.computeIfAbsent(prefix, p -> {
+            PrefixUsage usage = new PrefixUsage();
+            Gauge.builder("feed.redis.keys", usage, u -> u.keys).tag("prefix", p).register(meterRegistry);
+            Gauge.builder("feed.redis.bytes", usage, u -> u.bytes).tag("prefix", p).register(meterRegistry);
+            return usage;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static class PrefixUsage {
+        volatile long keys;
+        volatile long bytes;
+
+        void update(long keys, long bytes) {
+            this.keys = keys;
+            this.bytes = bytes;
+        }
+    }
+}
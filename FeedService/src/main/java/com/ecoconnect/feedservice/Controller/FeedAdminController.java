@@ -0,0 +1,64 @@
+package com.ecoconnect.feedservice.Controller;
+
+import com.ecoconnect.feedservice.Config.RedisMemoryBudget;
+import com.ecoconnect.feedservice.Service.DeadLetterReplayer;
+import com.ecoconnect.feedservice.Service.RecentPostsRebuildJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/feed/admin")
+public class FeedAdminController {
+
+    private final RecentPostsRebuildJob recentPostsRebuildJob;
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final RedisMemoryBudget redisMemoryBudget;
+
+    @Autowired
+    public FeedAdminController(RecentPostsRebuildJob recentPostsRebuildJob, DeadLetterReplayer deadLetterReplayer, RedisMemoryBudget redisMemoryBudget) {
+        this.recentPostsRebuildJob = recentPostsRebuildJob;
+        this.deadLetterReplayer = deadLetterReplayer;
+        this.redisMemoryBudget = redisMemoryBudget;
+    }
+
+    // Rebuild every recent_posts ZSET from Mongo, e.g. after a Redis flush
+    @PostMapping("/recent-posts/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildRecentPosts() {
+        HttpStatus status = recentPostsRebuildJob.start() ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status).body(recentPostsRebuildJob.getStatus());
+    }
+
+    @GetMapping("/recent-posts/rebuild")
+    public ResponseEntity<Map<String, Object>> getRebuildStatus() {
+        return ResponseEntity.ok(recentPostsRebuildJob.getStatus());
+    }
+
+    // Records waiting in each listener's dead-letter topic
+    @GetMapping("/dead-letters")
+    public ResponseEntity<Map<String, Long>> getDeadLetterDepths() {
+        Map<String, Long> depths = new LinkedHashMap<>();
+        DeadLetterReplayer.LISTENER_TOPICS.forEach(topic -> depths.put(topic, deadLetterReplayer.depth(topic)));
+        return ResponseEntity.ok(depths);
+    }
+
+    // Send dead-lettered records back to the listener's topic once the cause is fixed
+    @PostMapping("/dead-letters/{topic}/replay")
+    public ResponseEntity<Map<String, Object>> replayDeadLetters(@PathVariable String topic, @RequestParam(defaultValue = "100") int max) {
+        if (!DeadLetterReplayer.LISTENER_TOPICS.contains(topic))
+            return ResponseEntity.notFound().build();
+
+        int replayed = deadLetterReplayer.replay(topic, max);
+        return ResponseEntity.ok(Map.of("topic", topic, "replayed", replayed, "remaining", deadLetterReplayer.depth(topic)));
+    }
+
+    // Fresh key count and estimated bytes per Redis key prefix
+    @GetMapping("/redis-memory")
+    public ResponseEntity<Map<String, Map<String, Long>>> getRedisMemory() {
+        return ResponseEntity.ok(redisMemoryBudget.report());
+    }
+}
@@ -1,25 +1,132 @@
 package com.ecoconnect.feedservice.Controller;
 
+import com.ecoconnect.feedservice.Model.FeedCursor;
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import com.ecoconnect.feedservice.Model.FeedPage;
 import com.ecoconnect.feedservice.Model.FeedPost;
+import com.ecoconnect.feedservice.Service.ActiveUserTracker;
 import com.ecoconnect.feedservice.Service.FeedService;
+import com.ecoconnect.feedservice.Service.RankedTimeline;
+import com.ecoconnect.feedservice.Service.ReactiveFeedService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/feed")
 public class FeedController {
 
+    // Opaque cursor for the next (older) page; absent on the last page
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final FeedService feedService;
+    private final ReactiveFeedService reactiveFeedService;
+    private final ActiveUserTracker activeUserTracker;
+    private final RankedTimeline rankedTimeline;
+
+    // Serve feeds from the non-blocking path, releasing the request thread while Redis and Mongo answer
+    @Value("${feed.reactive.enabled:true}")
+    private boolean reactiveEnabled;
+
+    @Value("${feed.page.max-size:200}")
+    private int maxPageSize;
 
     @Autowired
-    public FeedController(FeedService feedService) {
+    public FeedController(FeedService feedService, ReactiveFeedService reactiveFeedService, ActiveUserTracker activeUserTracker, RankedTimeline rankedTimeline) {
         this.feedService = feedService;
+        this.reactiveFeedService = reactiveFeedService;
+        this.activeUserTracker = activeUserTracker;
+        this.rankedTimeline = rankedTimeline;
     }
 
+    // With since (the ETag of the client's last response), only newer posts are returned, or 304 when there are none.
+    // A head request (no cursor) with If-None-Match is the same poll, so standard conditional GETs work too.
+    // When more than limit are new, the oldest limit come first; polling again with the new ETag returns the rest.
+    // order=ranked ranks by recency and author affinity instead of time; its cursors only page ranked feeds
     @GetMapping("/{userId}")
-    public List<FeedPost> getUserFeed(@PathVariable String userId, @RequestParam(defaultValue = "50") int limit, @RequestParam(required = false) String olderThan) {
-        return feedService.getFeed(userId, limit, olderThan);
+    public Mono<ResponseEntity<List<FeedPost>>> getUserFeed(@PathVariable String userId, @RequestParam(defaultValue = "50") int limit, @RequestParam(required = false) String olderThan, @RequestParam(required = false) String cursor, @RequestParam(required = false) String since, @RequestParam(defaultValue = "latest") String order,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (limit < 1 || limit > maxPageSize)
+            return Mono.just(ResponseEntity.badRequest().build());
+        FeedCursor feedCursor;
+        FeedCursor sinceCursor;
+        try {
+            feedCursor = parseCursor(cursor, olderThan);
+            String sinceToken = etagValue(since);
+            if (sinceToken == null && feedCursor == null && !"ranked".equals(order))
+                sinceToken = etagValue(ifNoneMatch);
+            sinceCursor = sinceToken != null ? FeedCursor.decode(sinceToken) : null;
+        } catch (IllegalArgumentException | DateTimeException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        activeUserTracker.record(userId);
+
+        if (sinceCursor != null) {
+            Mono<FeedPage> delta = reactiveEnabled
+                    ? reactiveFeedService.getFeedSince(userId, sinceCursor, limit)
+                    : Mono.fromCallable(() -> feedService.getFeedSince(userId, sinceCursor, limit));
+            // The ETag follows the window even if none of its posts could be hydrated, so a poll never gets stuck
+            return delta.map(page -> page.getHeadCursor() == null
+                            ? ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(sinceCursor.encode()).<List<FeedPost>>build()
+                            : ResponseEntity.ok().eTag(page.getHeadCursor()).body(page.getPosts()))
+                    .onErrorResume(TimeoutException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build()));
+        }
+
+        if ("ranked".equals(order))
+            return Mono.fromCallable(() -> toResponse(feedService.getRankedFeed(userId, limit, feedCursor, true), false));
+
+        Mono<FeedPage> page = reactiveEnabled
+                ? reactiveFeedService.getFeed(userId, limit, feedCursor, true)
+                : Mono.fromCallable(() -> feedService.getFeed(userId, limit, feedCursor, true));
+        return page.map(p -> toResponse(p, feedCursor == null))
+                .onErrorResume(TimeoutException.class, e -> Mono.just(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build()));
+    }
+
+    // Responses that start at the head of the feed carry the cursor of their newest post as ETag,
+    // which the client polls with as since
+    private static ResponseEntity<List<FeedPost>> toResponse(FeedPage page, boolean head) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null)
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        if (head && !page.getPosts().isEmpty())
+            response.eTag(FeedCursor.after(FeedEntry.of(page.getPosts().get(0))).encode());
+        return response.body(page.getPosts());
+    }
+
+    // The token inside an ETag as the client echoes it: quotes and W/ removed, the first of a list, null for none or "*"
+    private static String etagValue(String etag) {
+        if (etag == null)
+            return null;
+        String value = etag.split(",")[0].trim();
+        if (value.startsWith("W/"))
+            value = value.substring(2);
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\""))
+            value = value.substring(1, value.length() - 1);
+        return value.isEmpty() || "*".equals(value) ? null : value;
+    }
+
+    // The cursor takes precedence; olderThan is still accepted from older clients
+    private static FeedCursor parseCursor(String cursor, String olderThan) {
+        if (cursor != null && !cursor.isEmpty())
+            return FeedCursor.decode(cursor);
+        if (olderThan != null && !olderThan.isEmpty())
+            return FeedCursor.olderThan(LocalDateTime.parse(olderThan));
+        return null;
+    }
+
+    // Raises the user's affinity for the author in the ranked feed, e.g. when they like or open one of the author's posts
+    @PostMapping("/{userId}/engagements/{authorId}")
+    public ResponseEntity<Void> recordEngagement(@PathVariable String userId, @PathVariable String authorId) {
+        rankedTimeline.recordEngagement(userId, authorId);
+        return ResponseEntity.noContent().build();
     }
 }
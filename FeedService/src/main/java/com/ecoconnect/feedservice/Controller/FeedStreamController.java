@@ -0,0 +1,84 @@
+package com.ecoconnect.feedservice.Controller;
+
+import com.ecoconnect.feedservice.Model.FeedCursor;
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import com.ecoconnect.feedservice.Model.FeedPost;
+import com.ecoconnect.feedservice.Service.ActiveUserTracker;
+import com.ecoconnect.feedservice.Service.FeedPushRegistry;
+import com.ecoconnect.feedservice.Service.ReactiveFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/feed")
+public class FeedStreamController {
+
+    private final FeedPushRegistry feedPushRegistry;
+    private final ReactiveFeedService reactiveFeedService;
+    private final ActiveUserTracker activeUserTracker;
+
+    @Value("${feed.push.heartbeat:PT30S}")
+    private Duration heartbeat;
+
+    // Clients reconnect after this long, which rebalances connections across instances
+    @Value("${feed.push.max-connection-age:PT30M}")
+    private Duration maxConnectionAge;
+
+    @Value("${feed.push.resume-limit:50}")
+    private int resumeLimit;
+
+    @Autowired
+    public FeedStreamController(FeedPushRegistry feedPushRegistry, ReactiveFeedService reactiveFeedService, ActiveUserTracker activeUserTracker) {
+        this.feedPushRegistry = feedPushRegistry;
+        this.reactiveFeedService = reactiveFeedService;
+        this.activeUserTracker = activeUserTracker;
+    }
+
+    // New posts of the user's followees as server-sent events. Each event's id is a feed cursor, so on
+    // reconnect the posts missed in between are sent first (the same lookup as GET /api/feed/{userId}?since=)
+    @GetMapping(value = "/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<FeedPost>> streamUserFeed(@PathVariable String userId, @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        activeUserTracker.record(userId);
+        Flux<FeedPost> missed = Flux.empty();
+        if (lastEventId != null && !lastEventId.isEmpty()) {
+            try {
+                FeedCursor since = FeedCursor.decode(lastEventId);
+                // Windows of at most resumeLimit posts, oldest first, until one isn't full
+                missed = reactiveFeedService.getFeedSince(userId, since, resumeLimit)
+                        .expand(page -> page.getNextCursor() != null
+                                ? reactiveFeedService.getFeedSince(userId, FeedCursor.decode(page.getNextCursor()), resumeLimit)
+                                : Mono.empty())
+                        .concatMapIterable(page -> oldestFirst(page.getPosts()))
+                        .onErrorResume(e -> Flux.empty());
+            } catch (IllegalArgumentException e) {
+                // Unknown event id: continue with live posts only
+            }
+        }
+
+        // Subscribed together, so nothing is lost while the missed posts load; live posts are held back until then
+        Flux<ServerSentEvent<FeedPost>> posts = Flux.mergeSequential(missed, feedPushRegistry.subscribe(userId))
+                .map(post -> ServerSentEvent.builder(post)
+                        .id(FeedCursor.after(FeedEntry.of(post)).encode())
+                        .event("post")
+                        .build());
+        Flux<ServerSentEvent<FeedPost>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<FeedPost>builder().comment("keep-alive").build());
+        return Flux.merge(posts, heartbeats).take(maxConnectionAge);
+    }
+
+    private static List<FeedPost> oldestFirst(List<FeedPost> newestFirst) {
+        List<FeedPost> posts = new ArrayList<>(newestFirst);
+        Collections.reverse(posts);
+        return posts;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ecoconnect.feedservice.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+// Opaque pagination cursor: the (score, postId) of the last entry the client has seen
+@Getter
+@AllArgsConstructor
+public class FeedCursor {
+
+    private final long score;
+    private final String postId;
+
+    public static FeedCursor after(FeedEntry entry) {
+        return new FeedCursor(entry.getScore(), entry.getPostId());
+    }
+
+    // Legacy olderThan paging: everything strictly older than the given time
+    public static FeedCursor olderThan(LocalDateTime time) {
+        return new FeedCursor(FeedEntry.scoreOf(time), "");
+    }
+
+    public static FeedCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new FeedCursor(Long.parseLong(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid feed cursor: " + token, e);
+        }
+    }
+
+    public LocalDateTime toDateTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(score), ZoneOffset.UTC);
+    }
+
+    public String encode() {
+        String raw = score + ":" + postId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // True if the entry comes strictly after this cursor in feed order
+    public boolean precedes(FeedEntry entry) {
+        return entry.getScore() < score || (entry.getScore() == score && entry.getPostId().compareTo(postId) < 0);
+    }
+}
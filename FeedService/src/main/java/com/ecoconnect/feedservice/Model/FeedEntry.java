@@ -0,0 +1,46 @@
+package com.ecoconnect.feedservice.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+
+/**
+ * A post reference as stored in the Redis feed ZSETs: the post ID and its time-ordered score.
+ * Score encoding v1 is the creation time in epoch millis; posts created in the same millisecond
+ * are ordered by postId, which is also how Redis orders members with equal scores.
+ * v0 (epoch seconds) is still decoded until RecentPostsRebuildJob has rewritten the old sets.
+ */
+@Data
+@AllArgsConstructor
+public class FeedEntry {
+
+    // Feed order: highest score first, ties broken by postId so equal timestamps never collapse
+    public static final Comparator<FeedEntry> NEWEST_FIRST = Comparator
+            .comparingLong(FeedEntry::getScore).reversed()
+            .thenComparing(FeedEntry::getPostId, Comparator.reverseOrder());
+
+    public static final int SCORE_VERSION = 1;
+
+    // Any v0 score (epoch seconds) is below this, any v1 score above it
+    public static final double LEGACY_SECONDS_CEILING = 1e11;
+
+    private String postId;
+    private long score;
+
+    public static FeedEntry of(FeedPost post) {
+        return new FeedEntry(post.getPostId(), scoreOf(post.getCreatedDate()));
+    }
+
+    // ZSET score of a post: its creation time in epoch millis
+    public static long scoreOf(LocalDateTime createdDate) {
+        return createdDate.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    // Decodes a score read from Redis, whichever version wrote it
+    public static long fromRawScore(double rawScore) {
+        return (long) (rawScore < LEGACY_SECONDS_CEILING ? rawScore * 1000 : rawScore);
+    }
+}
@@ -0,0 +1,24 @@
+package com.ecoconnect.feedservice.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class FeedPage {
+    private List<FeedPost> posts;
+    private String nextCursor; // null when there is nothing older to page into; on since pages, set when more new posts wait
+    private String headCursor; // since pages only: cursor of the newest entry of the window, to poll with next
+
+    public FeedPage(List<FeedPost> posts, String nextCursor) {
+        this(posts, nextCursor, null);
+    }
+
+    // A window of new entries (newest first, at most limit of them): polling from its head continues where it ends
+    public static FeedPage since(List<FeedEntry> window, int limit, List<FeedPost> posts) {
+        String head = FeedCursor.after(window.get(0)).encode();
+        return new FeedPage(posts, window.size() < limit ? null : head, head);
+    }
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -12,11 +14,15 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "feedPosts")
+@CompoundIndex(name = "author_created_id_idx", def = "{ 'authorId': 1, 'createdDate': -1, '_id': -1 }")
 public class FeedPost {
     @Id
     private String postId;
     private String authorId;
     private String content;
     private LocalDateTime createdDate;
-    private String authorName;
+    private long likes; // totals from post-engagement (EngagementEventListener)
+    private long comments;
+    @Transient
+    private String authorName; // resolved at read time by AuthorProfileCache, not stored
 }
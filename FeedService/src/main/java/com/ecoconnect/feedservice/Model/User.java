@@ -3,6 +3,7 @@ package com.ecoconnect.feedservice.Model;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.HashSet;
@@ -14,6 +15,7 @@ import java.util.Set;
 public class User {
     @Id
     private String id;
+    @Indexed
     private Set<String> following = new HashSet<>(); // Stores followees
     private String userName;
 
@@ -4,7 +4,7 @@ import com.ecoconnect.feedservice.Model.FeedPost;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -12,7 +12,11 @@ import java.util.List;
 @Repository
 public interface FeedPostRepository extends MongoRepository<FeedPost, String> {
 
-    List<FeedPost> findByAuthorIdInOrderByCreatedDateDesc(List<String> authorIds);
-    List<FeedPost> findByAuthorIdInAndCreatedDateBeforeOrderByCreatedDateDesc(List<String> authorIds, LocalDateTime before);
+    // Candidate selection only: served from the {authorId, createdDate, _id} index, without the post content
+    @Query(value = "{ 'authorId': { '$in': ?0 } }", fields = "{ 'content': 0 }", sort = "{ 'createdDate': -1, '_id': -1 }")
+    List<FeedPost> findFeedCandidates(List<String> authorIds, Pageable pageable);
+
+    @Query(value = "{ 'authorId': { '$in': ?0 }, 'createdDate': { '$lte': ?1 } }", fields = "{ 'content': 0 }", sort = "{ 'createdDate': -1, '_id': -1 }")
+    List<FeedPost> findFeedCandidatesBefore(List<String> authorIds, LocalDateTime before, Pageable pageable);
 
 }
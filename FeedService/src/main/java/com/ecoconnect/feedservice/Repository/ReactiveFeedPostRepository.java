@@ -0,0 +1,23 @@
+package com.ecoconnect.feedservice.Repository;
+
+import com.ecoconnect.feedservice.Model.FeedPost;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Non-blocking counterpart of FeedPostRepository for the reactive feed read path
+@Repository
+public interface ReactiveFeedPostRepository extends ReactiveMongoRepository<FeedPost, String> {
+
+    @Query(value = "{ 'authorId': { '$in': ?0 } }", fields = "{ 'content': 0 }", sort = "{ 'createdDate': -1, '_id': -1 }")
+    Flux<FeedPost> findFeedCandidates(List<String> authorIds, Pageable pageable);
+
+    @Query(value = "{ 'authorId': { '$in': ?0 }, 'createdDate': { '$lte': ?1 } }", fields = "{ 'content': 0 }", sort = "{ 'createdDate': -1, '_id': -1 }")
+    Flux<FeedPost> findFeedCandidatesBefore(List<String> authorIds, LocalDateTime before, Pageable pageable);
+
+}
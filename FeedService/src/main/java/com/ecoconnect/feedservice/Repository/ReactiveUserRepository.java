@@ -0,0 +1,16 @@
+package com.ecoconnect.feedservice.Repository;
+
+import com.ecoconnect.feedservice.Model.User;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of UserRepository for the reactive feed read path
+@Repository
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'following': 1 }")
+    Mono<User> findUserFollowing(String userId);
+
+}
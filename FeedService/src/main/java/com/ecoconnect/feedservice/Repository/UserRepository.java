@@ -5,6 +5,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Set;
 
 @Repository
@@ -13,4 +14,10 @@ public interface UserRepository extends MongoRepository<User, String> {
     @Query(value = "{ '_id': ?0 }", fields = "{ 'following': 1 }")
     User findUserFollowing(String userId);
 
+    @Query(value = "{ 'following': ?0 }", count = true)
+    long countFollowers(String userId);
+
+    @Query(value = "{ 'following': ?0 }", fields = "{ '_id': 1 }")
+    List<User> findFollowers(String userId);
+
 }
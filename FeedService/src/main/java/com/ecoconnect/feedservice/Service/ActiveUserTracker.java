@@ -0,0 +1,82 @@
+package com.ecoconnect.feedservice.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which users read their feed most recently, in the "active_users" ZSET (userId -> last
+ * read in epoch millis), capped at feed.warmup.tracked-users. Reads are collected in memory and
+ * written in one pipeline per flush interval, so tracking adds no Redis call to a feed request.
+ */
+@Component
+public class ActiveUserTracker {
+
+    static final String ACTIVE_USERS_KEY = "active_users";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "active-user-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${feed.warmup.tracked-users:50000}")
+    private long trackedUsers;
+
+    @Autowired
+    public ActiveUserTracker(RedisTemplate<String, Object> redisTemplate,
+                             @Value("${feed.warmup.activity-flush:PT10S}") Duration flushInterval) {
+        this.redisTemplate = redisTemplate;
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void record(String userId) {
+        pending.put(userId, System.currentTimeMillis());
+    }
+
+    // Most recently active first
+    public List<String> mostRecent(int count) {
+        Set<Object> userIds = redisTemplate.opsForZSet().reverseRange(ACTIVE_USERS_KEY, 0, count - 1);
+        return userIds == null ? Collections.emptyList() : userIds.stream().map(Object::toString).toList();
+    }
+
+    private void flush() {
+        if (pending.isEmpty())
+            return;
+        Map<String, Long> batch = new HashMap<>();
+        for (String userId : new ArrayList<>(pending.keySet())) {
+            Long readAt = pending.remove(userId);
+            if (readAt != null)
+                batch.put(userId, readAt);
+        }
+
+        try {
+            Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>();
+            batch.forEach((userId, readAt) -> tuples.add(ZSetOperations.TypedTuple.of(userId, (double) readAt)));
+            RedisPipelines.execute(redisTemplate, ops -> {
+                ops.opsForZSet().add(ACTIVE_USERS_KEY, tuples);
+                ops.opsForZSet().removeRange(ACTIVE_USERS_KEY, 0, -(trackedUsers + 1));
+            });
+        } catch (Exception e) {
+            System.err.println("Could not record " + batch.size() + " active users: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+}
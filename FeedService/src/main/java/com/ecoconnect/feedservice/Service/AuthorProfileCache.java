@@ -0,0 +1,126 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.User;
+import com.ecoconnect.feedservice.Repository.ReactiveUserRepository;
+import com.ecoconnect.feedservice.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Author display names, resolved when a feed page is built instead of being copied into every
+ * FeedPost document. Lookups go to a small in-process cache, then the shared "author_names"
+ * Redis hash, then the users collection. USER_CREATED and USER_UPDATED events keep it current.
+ */
+@Component
+public class AuthorProfileCache {
+
+    static final String AUTHOR_NAMES_KEY = "author_names";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final UserRepository userRepository;
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final Cache<String, String> names;
+
+    @Autowired
+    public AuthorProfileCache(RedisTemplate<String, Object> redisTemplate, UserRepository userRepository,
+                              ReactiveRedisTemplate<String, Object> reactiveRedisTemplate, ReactiveUserRepository reactiveUserRepository,
+                              @Value("${feed.author-cache.max-size:100000}") long maxSize,
+                              @Value("${feed.author-cache.ttl:PT5M}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.userRepository = userRepository;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.reactiveUserRepository = reactiveUserRepository;
+        // Short TTL: renames reach other instances through Redis within one TTL
+        this.names = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // authorId -> display name; unknown authors map to an empty name
+    public Map<String, String> resolveNames(Collection<String> authorIds) {
+        Set<String> ids = new HashSet<>(authorIds);
+        Map<String, String> resolved = new HashMap<>(names.getAllPresent(ids));
+        if (resolved.size() == ids.size())
+            return resolved;
+
+        List<Object> missing = ids.stream().filter(id -> !resolved.containsKey(id)).map(id -> (Object) id).toList();
+        List<Object> cached = redisTemplate.opsForHash().multiGet(AUTHOR_NAMES_KEY, missing);
+
+        List<String> unknown = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i++) {
+            String authorId = missing.get(i).toString();
+            Object name = cached != null ? cached.get(i) : null;
+            if (name != null) {
+                resolved.put(authorId, name.toString());
+                names.put(authorId, name.toString());
+            } else {
+                unknown.add(authorId);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            Map<String, String> loaded = new HashMap<>();
+            for (User user : userRepository.findAllById(unknown))
+                loaded.put(user.getId(), user.getUserName() != null ? user.getUserName() : "");
+            unknown.forEach(id -> loaded.putIfAbsent(id, ""));
+            resolved.putAll(loaded);
+            update(loaded);
+        }
+        return resolved;
+    }
+
+    // Non-blocking variant of resolveNames, same lookup order
+    public Mono<Map<String, String>> resolveNamesReactive(Collection<String> authorIds) {
+        Set<String> ids = new HashSet<>(authorIds);
+        Map<String, String> resolved = new HashMap<>(names.getAllPresent(ids));
+        if (resolved.size() == ids.size())
+            return Mono.just(resolved);
+
+        List<Object> missing = ids.stream().filter(id -> !resolved.containsKey(id)).map(id -> (Object) id).toList();
+        return reactiveRedisTemplate.opsForHash().multiGet(AUTHOR_NAMES_KEY, missing)
+                .defaultIfEmpty(Collections.emptyList())
+                .flatMap(cached -> {
+                    List<String> unknown = new ArrayList<>();
+                    for (int i = 0; i < missing.size(); i++) {
+                        String authorId = missing.get(i).toString();
+                        Object name = i < cached.size() ? cached.get(i) : null;
+                        if (name != null) {
+                            resolved.put(authorId, name.toString());
+                            names.put(authorId, name.toString());
+                        } else {
+                            unknown.add(authorId);
+                        }
+                    }
+                    if (unknown.isEmpty())
+                        return Mono.just(resolved);
+
+                    return reactiveUserRepository.findAllById(unknown)
+                            .collectMap(User::getId, user -> user.getUserName() != null ? user.getUserName() : "")
+                            .flatMap(loaded -> {
+                                Map<String, String> known = new HashMap<>(loaded);
+                                unknown.forEach(id -> known.putIfAbsent(id, ""));
+                                resolved.putAll(known);
+                                names.putAll(known);
+                                return reactiveRedisTemplate.opsForHash().putAll(AUTHOR_NAMES_KEY, known).thenReturn(resolved);
+                            });
+                });
+    }
+
+    public void update(Map<String, String> authorNames) {
+        if (authorNames.isEmpty())
+            return;
+        redisTemplate.opsForHash().putAll(AUTHOR_NAMES_KEY, authorNames);
+        names.putAll(authorNames);
+    }
+}
@@ -0,0 +1,129 @@
+package com.ecoconnect.feedservice.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers every record of a topic to every instance, for state each instance keeps for itself
+ * (FeedPostCache entries, the streams connected to it). Each topic gets one consumer with all its
+ * partitions assigned manually, starting from their end. The consumer has no group.id, so no group
+ * is joined, nothing is committed, and a restart leaves nothing behind on the broker. Partitions
+ * added to the topic later are picked up within PARTITION_CHECK and read from their beginning.
+ */
+@Component
+public class BroadcastSubscriber implements ApplicationRunner {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    private static final Duration PARTITION_CHECK = Duration.ofMinutes(1);
+    private static final Duration PARTITION_RETRY = Duration.ofSeconds(5);
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+    private volatile boolean stopped;
+
+    @Autowired
+    public BroadcastSubscriber(ConsumerFactory<?, ?> consumerFactory) {
+        this.consumerFactory = consumerFactory;
+    }
+
+    // Called by each subscriber while the context starts; records are handled on the topic's consumer thread
+    public void subscribe(String topic, Consumer<String> handler) {
+        handlers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        handlers.forEach((topic, topicHandlers) -> {
+            Thread thread = new Thread(() -> follow(topic, topicHandlers), "broadcast-" + topic);
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopped = true;
+    }
+
+    private void follow(String topic, List<Consumer<String>> topicHandlers) {
+        try (org.apache.kafka.clients.consumer.Consumer<String, String> consumer = createConsumer(topic)) {
+            Set<TopicPartition> assigned = Collections.emptySet();
+            long nextCheck = System.nanoTime();
+            while (!stopped) {
+                if (System.nanoTime() - nextCheck >= 0) {
+                    try {
+                        assigned = assign(consumer, topic, assigned);
+                        nextCheck = System.nanoTime() + PARTITION_CHECK.toNanos();
+                    } catch (Exception e) {
+                        System.err.println("Could not read the partitions of " + topic + ", retrying: " + e.getMessage());
+                        nextCheck = System.nanoTime() + PARTITION_RETRY.toNanos();
+                    }
+                }
+                if (assigned.isEmpty()) {
+                    Thread.sleep(POLL_TIMEOUT.toMillis());
+                    continue;
+                }
+                for (ConsumerRecord<String, String> record : consumer.poll(POLL_TIMEOUT))
+                    deliver(topic, topicHandlers, record.value());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Following " + topic + " on this instance stopped: " + e.getMessage());
+        }
+    }
+
+    // The factory's connection settings without feed-service-group, which createConsumer(null, ...) would fall back to
+    private org.apache.kafka.clients.consumer.Consumer<String, String> createConsumer(String topic) {
+        Map<String, Object> config = new HashMap<>(consumerFactory.getConfigurationProperties());
+        config.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.CLIENT_ID_CONFIG, "broadcast-" + topic + "-" + UUID.randomUUID());
+        return new KafkaConsumer<>(config, new StringDeserializer(), new StringDeserializer());
+    }
+
+    // The first assignment starts at the end; partitions that appear later are new, so they are read from the start
+    private static Set<TopicPartition> assign(org.apache.kafka.clients.consumer.Consumer<String, String> consumer,
+                                              String topic, Set<TopicPartition> assigned) {
+        List<PartitionInfo> infos = consumer.partitionsFor(topic, PARTITION_RETRY);
+        if (infos == null || infos.size() == assigned.size())
+            return assigned;
+
+        Set<TopicPartition> partitions = new HashSet<>();
+        for (PartitionInfo info : infos)
+            partitions.add(new TopicPartition(info.topic(), info.partition()));
+        List<TopicPartition> added = partitions.stream().filter(partition -> !assigned.contains(partition)).toList();
+        consumer.assign(partitions);
+        if (assigned.isEmpty())
+            consumer.seekToEnd(added);
+        else
+            consumer.seekToBeginning(added);
+        return partitions;
+    }
+
+    private static void deliver(String topic, List<Consumer<String>> topicHandlers, String message) {
+        for (Consumer<String> handler : topicHandlers) {
+            try {
+                handler.accept(message);
+            } catch (Exception e) {
+                System.err.println("Error handling " + topic + " record on this instance: " + e.getMessage());
+            }
+        }
+    }
+}
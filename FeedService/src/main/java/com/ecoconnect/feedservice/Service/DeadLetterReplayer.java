@@ -0,0 +1,116 @@
+package com.ecoconnect.feedservice.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Reads this service's dead-letter topics ("{topic}.feed-service-dlt") with its own consumer group
+ * ("feed-service-dlt-replay"). Replaying hands records to the first retry tier, which only this service
+ * consumes, so other consumer groups of the original topic never see them twice. Depth is the number
+ * of records not yet replayed, published per listener as "feed.kafka.dead-letter.depth".
+ */
+@Component
+public class DeadLetterReplayer {
+
+    static final String REPLAY_GROUP = "feed-service-dlt-replay";
+    public static final List<String> LISTENER_TOPICS = List.of("post-notifications", "user-notifications", "post-engagement");
+
+    private final EventRetryProcessor eventRetryProcessor;
+    private final Consumer<String, String> consumer;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public DeadLetterReplayer(EventRetryProcessor eventRetryProcessor, ConsumerFactory<?, ?> consumerFactory, MeterRegistry meterRegistry) {
+        this.eventRetryProcessor = eventRetryProcessor;
+        Properties overrides = new Properties();
+        overrides.put("enable.auto.commit", "false");
+        overrides.put("auto.offset.reset", "earliest");
+        this.consumer = (Consumer<String, String>) consumerFactory.createConsumer(REPLAY_GROUP, null, "-replay", overrides);
+
+        for (String topic : LISTENER_TOPICS)
+            Gauge.builder("feed.kafka.dead-letter.depth", () -> depth(topic)).tag("listener", topic).register(meterRegistry);
+    }
+
+    // Records in the listener's dead-letter topic that haven't been replayed yet
+    public synchronized long depth(String topic) {
+        List<TopicPartition> partitions = partitions(EventRetryProcessor.deadLetterTopic(topic));
+        if (partitions.isEmpty())
+            return 0;
+
+        Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+        Map<TopicPartition, Long> begin = consumer.beginningOffsets(partitions);
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        long depth = 0;
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            depth += end.get(partition) - (offset != null ? offset.offset() : begin.get(partition));
+        }
+        return depth;
+    }
+
+    // Retries up to max dead-lettered records, oldest first; returns how many
+    public synchronized int replay(String topic, int max) {
+        List<TopicPartition> partitions = partitions(EventRetryProcessor.deadLetterTopic(topic));
+        if (partitions.isEmpty())
+            return 0;
+
+        consumer.assign(partitions);
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            if (offset != null)
+                consumer.seek(partition, offset);
+            else
+                consumer.seekToBeginning(List.of(partition));
+        }
+
+        int replayed = 0;
+        Map<TopicPartition, OffsetAndMetadata> done = new HashMap<>();
+        try {
+            while (replayed < max) {
+                ConsumerRecords<String, String> records = consumer.poll(Duration.ofSeconds(1));
+                if (records.isEmpty())
+                    break;
+                for (ConsumerRecord<String, String> record : records) {
+                    if (replayed >= max)
+                        break;
+                    eventRetryProcessor.replay(topic, record);
+                    done.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+                    replayed++;
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Replay of " + topic + " dead letters stopped after " + replayed + " records", e);
+        } finally {
+            if (!done.isEmpty())
+                consumer.commitSync(done);
+            consumer.unsubscribe();
+        }
+        return replayed;
+    }
+
+    private List<TopicPartition> partitions(String topic) {
+        List<PartitionInfo> infos = consumer.partitionsFor(topic);
+        if (infos == null)
+            return Collections.emptyList();
+        return infos.stream().map(info -> new TopicPartition(info.topic(), info.partition())).toList();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        consumer.close();
+    }
+}
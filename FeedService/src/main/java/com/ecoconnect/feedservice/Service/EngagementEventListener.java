@@ -0,0 +1,66 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedPost;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Consumes post-engagement, the compacted topic PostService publishes like and comment totals to after
+ * each flush of its counters, keyed by postId. The latest totals of each post in a lane are written to
+ * feedPosts in one unordered bulk update, and the cached copies are then dropped on every instance.
+ * Updates never create a post: totals for a post FeedService doesn't have yet are skipped, and the
+ * post's next update sets them. Tombstones of deleted posts are skipped too, since POST_DELETED already
+ * removed the post. Totals are absolute, so replaying the topic or a retried event is harmless.
+ */
+@Service
+public class EngagementEventListener {
+
+    static final String TOPIC = "post-engagement";
+
+    private final MongoTemplate mongoTemplate;
+    private final PostCacheInvalidationListener postCacheInvalidationListener;
+    private final EventRetryProcessor eventRetryProcessor;
+
+    @Autowired
+    public EngagementEventListener(MongoTemplate mongoTemplate, PostCacheInvalidationListener postCacheInvalidationListener, EventRetryProcessor eventRetryProcessor) {
+        this.mongoTemplate = mongoTemplate;
+        this.postCacheInvalidationListener = postCacheInvalidationListener;
+        this.eventRetryProcessor = eventRetryProcessor;
+
+        // Records are keyed by postId, so each post's totals are applied in the order they were published
+        eventRetryProcessor.register(TOPIC, event -> event.path("postId").asText(), this::applyEvents);
+    }
+
+    @KafkaListener(topics = TOPIC, groupId = "feed-service-group", containerFactory = "batchListenerContainerFactory")
+    public void consumeEngagementEvents(List<ConsumerRecord<String, String>> records) {
+        eventRetryProcessor.process(TOPIC, records);
+    }
+
+    private void applyEvents(List<JsonNode> events) {
+        // Only the newest totals of a post matter
+        Map<String, JsonNode> latestByPost = new LinkedHashMap<>();
+        for (JsonNode event : events) {
+            if ("ENGAGEMENT_UPDATED".equals(event.path("messageType").asText()))
+                latestByPost.put(event.get("postId").asText(), event);
+        }
+        if (latestByPost.isEmpty())
+            return;
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FeedPost.class);
+        latestByPost.forEach((postId, event) -> bulk.updateOne(Query.query(Criteria.where("_id").is(postId)),
+                Update.update("likes", event.path("likes").asLong()).set("comments", event.path("comments").asLong())));
+        bulk.execute();
+
+        postCacheInvalidationListener.invalidateEverywhere(latestByPost.keySet());
+    }
+}
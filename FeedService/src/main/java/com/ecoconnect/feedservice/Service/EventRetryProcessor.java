@@ -0,0 +1,344 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListenerConfigurer;
+import org.springframework.kafka.config.KafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistrar;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.KafkaConsumerBackoffManager;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Non-blocking retries for the feed's batch listeners.
+ * A batch is applied in key-ordered lanes. If a lane fails, its records are applied one at a time, and
+ * each record that still fails moves to "{topic}.feed-service-retry-0", together with every later
+ * record of the same key in that lane. The main partition then moves on. Tier n waits
+ * initial-delay * multiplier^n before it re-applies a record, then hands it on to tier n+1, and after
+ * the last tier to "{topic}.feed-service-dlt" (see DeadLetterReplayer). The topics are named after
+ * this service because other consumer groups of the same topics keep retry topics of their own.
+ * Every tier has its own listener container and consumer group. A record that isn't due yet pauses its
+ * partition until it is, so one tier's delay never holds up another. While a key has a record in the
+ * tiers (see RetryingKeys), its later records skip the main listener's lanes and are queued behind it
+ * in the tier it waits in. Tier records are keyed by the listener's key, so they share a partition there.
+ */
+@Component
+public class EventRetryProcessor implements KafkaListenerConfigurer {
+
+    static final String ORIGINAL_TOPIC_HEADER = "feed-original-topic";
+    static final String ATTEMPT_HEADER = "feed-attempt";
+    static final String DUE_AT_HEADER = "feed-due-at";
+    static final String EXCEPTION_HEADER = "feed-exception";
+    static final String RETRY_SUFFIX = ".feed-service-retry-";
+    static final String DLT_SUFFIX = ".feed-service-dlt";
+    static final String RETRY_LISTENER_ID = "feed-service-retry-";
+
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KeyOrderedProcessor keyOrderedProcessor;
+    private final RetryingKeys retryingKeys;
+    private final KafkaListenerContainerFactory<?> retryContainerFactory;
+    private final KafkaConsumerBackoffManager backoffManager;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+
+    @Value("${feed.kafka.retry.tiers:3}")
+    private int tiers;
+
+    @Value("${feed.kafka.retry.initial-delay-ms:1000}")
+    private long initialDelayMs;
+
+    @Value("${feed.kafka.retry.multiplier:5}")
+    private double multiplier;
+
+    @Autowired
+    public EventRetryProcessor(KafkaTemplate<String, String> kafkaTemplate, KeyOrderedProcessor keyOrderedProcessor, RetryingKeys retryingKeys,
+                               @Qualifier("retryListenerContainerFactory") KafkaListenerContainerFactory<?> retryContainerFactory,
+                               KafkaConsumerBackoffManager backoffManager, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.keyOrderedProcessor = keyOrderedProcessor;
+        this.retryingKeys = retryingKeys;
+        this.retryContainerFactory = retryContainerFactory;
+        this.backoffManager = backoffManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // One listener container and consumer group per tier, all calling retry
+    @Override
+    public void configureKafkaListeners(KafkaListenerEndpointRegistrar registrar) {
+        DefaultMessageHandlerMethodFactory methodFactory = new DefaultMessageHandlerMethodFactory();
+        methodFactory.afterPropertiesSet();
+        Method retry = ClassUtils.getMethod(EventRetryProcessor.class, "retry", ConsumerRecord.class, org.apache.kafka.clients.consumer.Consumer.class);
+        String listenerTopics = "(" + String.join("|", DeadLetterReplayer.LISTENER_TOPICS.stream().map(Pattern::quote).toList()) + ")";
+        for (int tier = 0; tier < tiers; tier++) {
+            MethodKafkaListenerEndpoint<String, String> endpoint = new MethodKafkaListenerEndpoint<>();
+            endpoint.setId(RETRY_LISTENER_ID + tier);
+            endpoint.setGroupId(RETRY_LISTENER_ID + tier);
+            endpoint.setTopicPattern(Pattern.compile(listenerTopics + Pattern.quote(RETRY_SUFFIX + tier)));
+            endpoint.setBean(this);
+            endpoint.setMethod(retry);
+            endpoint.setMessageHandlerMethodFactory(methodFactory);
+            registrar.registerEndpoint(endpoint, retryContainerFactory);
+        }
+    }
+
+    // Called by each listener for the topic it consumes; apply must be idempotent
+    public void register(String topic, Function<JsonNode, String> keyOf, Consumer<List<JsonNode>> apply) {
+        handlers.put(topic, new Handler(keyOf, apply));
+    }
+
+    public static String retryTopic(String topic, int tier) {
+        return topic + RETRY_SUFFIX + tier;
+    }
+
+    public static String deadLetterTopic(String topic) {
+        return topic + DLT_SUFFIX;
+    }
+
+    /**
+     * Applies a polled batch. If a failed record can't be handed to a retry tier either, this throws
+     * BatchListenerFailedException for the earliest such record: the container commits the records
+     * before it and retries from there, then dead-letters it (see KafkaConfig).
+     */
+    public void process(String topic, List<ConsumerRecord<String, String>> records) {
+        Handler handler = handlers.get(topic);
+        List<Item> items = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, String> record = records.get(i);
+            if (record.value() == null)
+                continue; // A tombstone of a compacted topic carries no event
+            JsonNode event = parse(record.value());
+            if (event != null) {
+                items.add(new Item(record, event));
+                continue;
+            }
+            try { // A malformed record can never succeed
+                forward(topic, record.key(), record, tiers, new IllegalArgumentException("Malformed event"));
+            } catch (RuntimeException e) {
+                throw new BatchListenerFailedException("Could not dead-letter malformed " + topic + " event", e, i);
+            }
+        }
+
+        // Keys with a record in the tiers: their records here are newer, so they queue up behind it
+        Map<String, Integer> retrying = retryingKeys(topic, items.stream().map(item -> handler.keyOf.apply(item.event)).toList());
+        List<Item> ready = new ArrayList<>(items.size());
+        for (Item item : items) {
+            String key = handler.keyOf.apply(item.event);
+            if (!retrying.containsKey(key)) {
+                ready.add(item);
+                continue;
+            }
+            try {
+                enterRetry(topic, key, item.record, new IllegalStateException("Earlier event of " + key + " is being retried"));
+            } catch (RuntimeException e) {
+                throw new BatchListenerFailedException("Could not queue " + topic + " event behind its key's retry", e, records.indexOf(item.record));
+            }
+        }
+
+        Map<ConsumerRecord<String, String>, RuntimeException> unforwarded = new ConcurrentHashMap<>();
+        try {
+            keyOrderedProcessor.process(ready, item -> handler.keyOf.apply(item.event), lane -> applyLane(topic, handler, lane, unforwarded));
+        } catch (RuntimeException e) {
+            // Lanes run concurrently, so the earliest failed record of the batch is found by position
+            for (int i = 0; i < records.size(); i++) {
+                RuntimeException cause = unforwarded.get(records.get(i));
+                if (cause != null)
+                    throw new BatchListenerFailedException(cause.getMessage(), cause, i);
+            }
+            throw e;
+        }
+    }
+
+    // Listener of every tier (see configureKafkaListeners). Records of one tier share its delay, so they come
+    // due in partition order: a record that isn't due pauses the partition until it is and is polled again then
+    public void retry(ConsumerRecord<String, String> record, org.apache.kafka.clients.consumer.Consumer<?, ?> consumer) {
+        String topic = header(record, ORIGINAL_TOPIC_HEADER);
+        int attempt = Integer.parseInt(header(record, ATTEMPT_HEADER));
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        backoffManager.backOffIfNecessary(backoffManager.createContext(Long.parseLong(header(record, DUE_AT_HEADER)),
+                RETRY_LISTENER_ID + attempt, partition, consumer));
+
+        Handler handler = handlers.get(topic);
+        JsonNode event = parse(record.value());
+        String key = keyOf(handler, record, event);
+
+        // Queued behind an older record of its key that has failed again meanwhile: follow it to its tier
+        Integer head = key != null ? retryingKeys.headTier(topic, key) : null;
+        if (head != null && head > attempt) {
+            forward(topic, key, record, head, new IllegalStateException("Earlier event of " + key + " is being retried"));
+            return;
+        }
+
+        try {
+            if (event == null)
+                throw new IllegalArgumentException("Malformed event");
+            handler.apply.accept(List.of(event));
+        } catch (RuntimeException e) {
+            int next = event == null ? tiers : attempt + 1;
+            forward(topic, key, record, next, e);
+            if (key != null && next < tiers)
+                retryingKeys.headMoved(topic, key, next);
+            else if (key != null)
+                retryingKeys.leave(topic, key);
+            return;
+        }
+        if (key != null)
+            retryingKeys.leave(topic, key);
+    }
+
+    // The record's key, else the listener's key of its event (records of old producers, malformed records
+    // dead-lettered as they came); null when neither has one, and then the record's order isn't tracked
+    private static String keyOf(Handler handler, ConsumerRecord<String, String> record, JsonNode event) {
+        if (record.key() != null && !record.key().isEmpty())
+            return record.key();
+        String key = handler != null && event != null ? handler.keyOf.apply(event) : null;
+        return key != null && !key.isEmpty() ? key : null;
+    }
+
+    private void applyLane(String topic, Handler handler, List<Item> lane, Map<ConsumerRecord<String, String>, RuntimeException> unforwarded) {
+        try {
+            handler.apply.accept(lane.stream().map(Item::event).toList());
+            return;
+        } catch (RuntimeException e) {
+            System.err.println("Batch of " + lane.size() + " " + topic + " events failed, retrying one by one: " + e.getMessage());
+        }
+
+        Set<String> failedKeys = new HashSet<>();
+        for (Item item : lane) {
+            String key = handler.keyOf.apply(item.event);
+            RuntimeException failure = null;
+            if (failedKeys.contains(key)) {
+                failure = new IllegalStateException("Earlier event of " + key + " is being retried");
+            } else {
+                try {
+                    handler.apply.accept(List.of(item.event));
+                } catch (RuntimeException e) {
+                    failedKeys.add(key);
+                    failure = e;
+                }
+            }
+            if (failure == null)
+                continue;
+            try {
+                enterRetry(topic, key, item.record, failure);
+            } catch (RuntimeException e) {
+                unforwarded.put(item.record, e);
+                throw e;
+            }
+        }
+    }
+
+    // A replayed dead letter starts over at the first tier; only this service consumes the tiers
+    public void replay(String topic, ConsumerRecord<String, String> deadLetter) {
+        String key = keyOf(handlers.get(topic), deadLetter, parse(deadLetter.value()));
+        enterRetry(topic, key, deadLetter, new IllegalStateException("Replayed dead letter"));
+    }
+
+    // Without Redis the batch is still applied; only keys with a record in the tiers may then be reordered
+    private Map<String, Integer> retryingKeys(String topic, List<String> keys) {
+        try {
+            return retryingKeys.headTiers(topic, keys);
+        } catch (RuntimeException e) {
+            System.err.println("Could not look up " + topic + " keys in retry, applying the batch as is: " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    // Counts the record into the tiers under key (unless it has none), and sends it to the first tier or behind the key's oldest record
+    private void enterRetry(String topic, String key, ConsumerRecord<String, String> record, Exception cause) {
+        if (key == null) {
+            forward(topic, null, record, 0, cause);
+            return;
+        }
+        int tier = retryingKeys.enter(topic, key, 0);
+        try {
+            forward(topic, key, record, tier, cause);
+        } catch (RuntimeException e) {
+            retryingKeys.leave(topic, key);
+            throw e;
+        }
+    }
+
+    // Sends the record to the tier for its next attempt, or to the dead-letter topic once the tiers are used up
+    private void forward(String topic, String key, ConsumerRecord<String, String> record, int attempt, Exception cause) {
+        boolean deadLetter = attempt >= tiers;
+        String target = deadLetter ? deadLetterTopic(topic) : retryTopic(topic, attempt);
+        long dueAt = deadLetter ? 0 : System.currentTimeMillis() + (long) (initialDelayMs * Math.pow(multiplier, attempt));
+
+        ProducerRecord<String, String> forwarded = new ProducerRecord<>(target, key, record.value());
+        forwarded.headers().add(ORIGINAL_TOPIC_HEADER, bytes(topic));
+        forwarded.headers().add(ATTEMPT_HEADER, bytes(String.valueOf(attempt)));
+        forwarded.headers().add(DUE_AT_HEADER, bytes(String.valueOf(dueAt)));
+        forwarded.headers().add(EXCEPTION_HEADER, bytes(String.valueOf(cause.getMessage())));
+
+        // Wait for the broker: the source offset is committed as soon as the listener returns
+        try {
+            kafkaTemplate.send(forwarded).get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not forward failed " + topic + " event to " + target, e);
+        }
+
+        if (deadLetter) {
+            counter("feed.kafka.dead-letters", topic).increment();
+            System.err.println("Dead-lettered " + topic + " event " + record.key() + ": " + cause.getMessage());
+        } else {
+            Counter.builder("feed.kafka.retries").tag("listener", topic).tag("tier", String.valueOf(attempt))
+                    .register(meterRegistry).increment();
+        }
+    }
+
+    private Counter counter(String name, String topic) {
+        return Counter.builder(name).tag("listener", topic).register(meterRegistry);
+    }
+
+    // The listener topic a record belongs to, whether it was read from the listener topic or a retry tier
+    public static String originalTopic(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(ORIGINAL_TOPIC_HEADER);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : record.topic();
+    }
+
+    private static String header(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private JsonNode parse(String message) {
+        try {
+            return message != null ? objectMapper.readTree(message) : null;
+        } catch (Exception e) {
+            System.err.println("Skipping malformed event: " + message);
+            return null;
+        }
+    }
+
+    private record Handler(Function<JsonNode, String> keyOf, Consumer<List<JsonNode>> apply) {
+    }
+
+    private record Item(ConsumerRecord<String, String> record, JsonNode event) {
+    }
+}
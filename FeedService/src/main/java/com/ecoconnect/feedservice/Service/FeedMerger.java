@@ -0,0 +1,114 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedCursor;
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * K-way merge over time-ordered feed ZSETs (timeline:* and recent_posts:*).
+ * Every key is read in small chunks, all first chunks in one multi_author_fetch script call,
+ * and only the streams that actually run dry are refilled with a doubled chunk.
+ * A heap holding one head per stream yields the page in O(limit log k).
+ */
+@Component
+public class FeedMerger {
+
+    private static final int MIN_CHUNK = 4;
+
+    private final FeedScripts feedScripts;
+
+    @Autowired
+    public FeedMerger(FeedScripts feedScripts) {
+        this.feedScripts = feedScripts;
+    }
+
+    // Newest entries across all keys that come after the cursor (null for the first page), at most limit of them
+    public List<FeedEntry> merge(Collection<String> keys, int limit, FeedCursor cursor) {
+        if (keys.isEmpty() || limit <= 0)
+            return Collections.emptyList();
+
+        int chunk = Math.min(limit, Math.max(MIN_CHUNK, (2 * limit + keys.size() - 1) / keys.size()));
+        List<String> keyList = List.copyOf(keys);
+        List<Stream> streams = keyList.stream().map(key -> new Stream(key, chunk)).toList();
+
+        double maxScore = cursor != null ? cursor.getScore() : Double.POSITIVE_INFINITY;
+        List<List<Object>> results = feedScripts.fetch(keyList, maxScore, 0, chunk);
+
+        PriorityQueue<Stream> heap = new PriorityQueue<>(streams.size(), Comparator.comparing(Stream::head, FeedEntry.NEWEST_FIRST));
+        for (int i = 0; i < streams.size(); i++) {
+            Stream stream = streams.get(i);
+            stream.accept(i < results.size() ? results.get(i) : Collections.emptyList(), cursor);
+            while (stream.buffer.isEmpty() && !stream.exhausted)
+                refill(stream, cursor);
+            if (!stream.buffer.isEmpty())
+                heap.add(stream);
+        }
+
+        List<FeedEntry> page = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        while (page.size() < limit && !heap.isEmpty()) {
+            Stream stream = heap.poll();
+            FeedEntry entry = stream.buffer.poll();
+            if (seen.add(entry.getPostId()))
+                page.add(entry);
+            if (page.size() == limit)
+                break; // A refill now would be a round trip for entries this page can't take
+
+            while (stream.buffer.isEmpty() && !stream.exhausted)
+                refill(stream, cursor);
+            if (!stream.buffer.isEmpty())
+                heap.add(stream);
+        }
+        return page;
+    }
+
+    private void refill(Stream stream, FeedCursor cursor) {
+        // Resume right after the last member received, skipping the ones that share its score
+        stream.chunk *= 2;
+        List<List<Object>> result = feedScripts.fetch(List.of(stream.key), stream.lastRawScore, stream.tiesAtLastScore, stream.chunk);
+        stream.accept(result.isEmpty() ? Collections.emptyList() : result.get(0), cursor);
+    }
+
+    private static final class Stream {
+        private final String key;
+        private final Deque<FeedEntry> buffer = new ArrayDeque<>();
+        private int chunk;
+        private boolean exhausted;
+        private double lastRawScore = Double.NaN;
+        private long tiesAtLastScore;
+
+        private Stream(String key, int chunk) {
+            this.key = key;
+            this.chunk = chunk;
+        }
+
+        private FeedEntry head() {
+            return buffer.peek();
+        }
+
+        // flat is a member/score list as returned by multi_author_fetch
+        private void accept(List<Object> flat, FeedCursor cursor) {
+            List<FeedEntry> received = new ArrayList<>();
+            int count = 0;
+            for (int i = 0; i + 1 < flat.size(); i += 2) {
+                double rawScore = Double.parseDouble(String.valueOf(flat.get(i + 1)));
+                count++;
+                if (rawScore != lastRawScore) {
+                    lastRawScore = rawScore;
+                    tiesAtLastScore = 0;
+                }
+                tiesAtLastScore++;
+
+                FeedEntry entry = new FeedEntry(String.valueOf(flat.get(i)), FeedEntry.fromRawScore(rawScore));
+                if (cursor == null || cursor.precedes(entry))
+                    received.add(entry);
+            }
+            exhausted = count < chunk;
+            received.sort(FeedEntry.NEWEST_FIRST);
+            buffer.addAll(received);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedPost;
+import com.ecoconnect.feedservice.Repository.FeedPostRepository;
+import com.ecoconnect.feedservice.Repository.ReactiveFeedPostRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * In-process near-cache of hydrated FeedPost documents, keyed by postId, in front of FeedPostRepository.
+ * Bounded by an estimate of retained bytes rather than entry count, since post sizes vary widely.
+ * Hit, miss and eviction counters are published as the "feedPosts" cache metrics.
+ */
+@Component
+public class FeedPostCache {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final FeedPostRepository feedPostRepository;
+    private final ReactiveFeedPostRepository reactiveFeedPostRepository;
+    private final Cache<String, FeedPost> cache;
+
+    @Autowired
+    public FeedPostCache(FeedPostRepository feedPostRepository, ReactiveFeedPostRepository reactiveFeedPostRepository, MeterRegistry meterRegistry,
+                         @Value("${feed.post-cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                         @Value("${feed.post-cache.ttl:PT6H}") Duration ttl) {
+        this.feedPostRepository = feedPostRepository;
+        this.reactiveFeedPostRepository = reactiveFeedPostRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String postId, FeedPost post) -> weigh(post))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "feedPosts");
+    }
+
+    // Same contract as FeedPostRepository.findAllById; only the misses go to Mongo
+    public List<FeedPost> findAllById(Collection<String> postIds) {
+        Map<String, FeedPost> cached = cache.getAllPresent(postIds);
+        if (cached.size() == postIds.size())
+            return new ArrayList<>(cached.values());
+
+        List<String> missing = postIds.stream().filter(id -> !cached.containsKey(id)).toList();
+        List<FeedPost> posts = new ArrayList<>(cached.values());
+        for (FeedPost post : feedPostRepository.findAllById(missing)) {
+            cache.put(post.getPostId(), post);
+            posts.add(post);
+        }
+        return posts;
+    }
+
+    // Non-blocking variant of findAllById
+    public Mono<List<FeedPost>> findAllByIdReactive(Collection<String> postIds) {
+        Map<String, FeedPost> cached = cache.getAllPresent(postIds);
+        if (cached.size() == postIds.size())
+            return Mono.just(new ArrayList<>(cached.values()));
+
+        List<String> missing = postIds.stream().filter(id -> !cached.containsKey(id)).toList();
+        return reactiveFeedPostRepository.findAllById(missing)
+                .doOnNext(this::put)
+                .collectList()
+                .map(loaded -> {
+                    List<FeedPost> posts = new ArrayList<>(cached.values());
+                    posts.addAll(loaded);
+                    return posts;
+                });
+    }
+
+    public void put(FeedPost post) {
+        cache.put(post.getPostId(), post);
+    }
+
+    public void invalidate(String postId) {
+        cache.invalidate(postId);
+    }
+
+    // Rough retained size: strings are two bytes per char plus object headers
+    private static int weigh(FeedPost post) {
+        return ENTRY_OVERHEAD_BYTES
+                + 2 * (length(post.getPostId()) + length(post.getAuthorId()) + length(post.getContent()) + length(post.getAuthorName()));
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
@@ -0,0 +1,48 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedPost;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Pushes newly created posts to the followers connected to this instance (see FeedPushRegistry).
+ * Followers may be connected to any instance, so every instance reads every post (see BroadcastSubscriber).
+ */
+@Service
+public class FeedPushListener {
+
+    private final FeedPushRegistry feedPushRegistry;
+    private final AuthorProfileCache authorProfileCache;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public FeedPushListener(FeedPushRegistry feedPushRegistry, AuthorProfileCache authorProfileCache, ObjectMapper objectMapper,
+                            BroadcastSubscriber broadcastSubscriber) {
+        this.feedPushRegistry = feedPushRegistry;
+        this.authorProfileCache = authorProfileCache;
+        this.objectMapper = objectMapper;
+        broadcastSubscriber.subscribe(PostEventListener.TOPIC, this::pushOnCreate);
+    }
+
+    private void pushOnCreate(String message) {
+        if (feedPushRegistry.connectionCount() == 0)
+            return;
+        try {
+            JsonNode event = objectMapper.readTree(message);
+            if (!"POST_CREATED".equals(event.get("messageType").asText()))
+                return;
+
+            String authorId = event.get("authorId").asText();
+            String authorName = authorProfileCache.resolveNames(List.of(authorId)).get(authorId);
+            feedPushRegistry.push(new FeedPost(event.get("postId").asText(), authorId, event.get("content").asText(),
+                    LocalDateTime.parse(event.get("timestamp").asText()), 0, 0, authorName));
+        } catch (Exception e) {
+            System.err.println("Error pushing post to connected followers: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedPost;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The streaming connections held by this instance, for pushing new posts to connected followers.
+ * Connections are indexed by the interned ids of the users they follow, so a post only reaches the
+ * connections following its author, without looking at the others. Each connection holds its user's
+ * followee bitmap, loaded when it connects and reloaded by a background task once it is older than
+ * feed.push.followees-refresh; the index follows every reload. Each connection buffers at most
+ * feed.push.buffer-size posts, and a slow client loses its oldest buffered posts rather than holding
+ * memory or the publisher. Posts are written out by the MVC async executor as clients keep up.
+ */
+@Component
+public class FeedPushRegistry {
+
+    private final FollowGraph followGraph;
+    private final UserIdInterner userIdInterner;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    // Interned followee id -> the connections of users following them
+    private final Map<Integer, Set<Connection>> byFollowee = new ConcurrentHashMap<>();
+    private final Counter dropped;
+    private final Duration followeesRefresh;
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "feed-push-followees");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${feed.push.buffer-size:32}")
+    private int bufferSize;
+
+    @Autowired
+    public FeedPushRegistry(FollowGraph followGraph, UserIdInterner userIdInterner, MeterRegistry meterRegistry,
+                            @Value("${feed.push.followees-refresh:PT1M}") Duration followeesRefresh) {
+        this.followGraph = followGraph;
+        this.userIdInterner = userIdInterner;
+        this.followeesRefresh = followeesRefresh;
+
+        Gauge.builder("feed.push.connections", connections, Set::size).register(meterRegistry);
+        this.dropped = Counter.builder("feed.push.dropped").register(meterRegistry);
+
+        // Reloads run here, never on the thread pushing posts
+        long checkEvery = Math.max(1000, followeesRefresh.toMillis() / 4);
+        refresher.scheduleWithFixedDelay(this::refreshFollowees, checkEvery, checkEvery, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    // Posts pushed to this user until the client disconnects
+    public Flux<FeedPost> subscribe(String userId) {
+        return Flux.defer(() -> {
+            Connection connection = new Connection(userId);
+            connections.add(connection);
+            connection.loadFollowees();
+
+            return connection.sink.asFlux()
+                    .onBackpressureBuffer(bufferSize, post -> dropped.increment(), BufferOverflowStrategy.DROP_OLDEST)
+                    .doFinally(signal -> {
+                        connections.remove(connection);
+                        connection.close();
+                    });
+        });
+    }
+
+    // Hands a new post to every connection whose user follows its author; never blocks on a client
+    public void push(FeedPost post) {
+        if (connections.isEmpty())
+            return;
+
+        Set<Connection> followers = byFollowee.get(userIdInterner.intern(post.getAuthorId()));
+        if (followers != null) {
+            for (Connection connection : followers)
+                connection.sink.tryEmitNext(post);
+        }
+    }
+
+    public int connectionCount() {
+        return connections.size();
+    }
+
+    private void refreshFollowees() {
+        long now = System.currentTimeMillis();
+        try {
+            for (Connection connection : connections) {
+                if (now - connection.loadedAt > followeesRefresh.toMillis())
+                    connection.loadFollowees();
+            }
+        } catch (Exception e) {
+            System.err.println("Could not refresh followees for push: " + e.getMessage());
+        }
+    }
+
+    private void index(int followeeId, Connection connection) {
+        byFollowee.compute(followeeId, (id, followers) -> {
+            Set<Connection> indexed = followers != null ? followers : ConcurrentHashMap.newKeySet();
+            indexed.add(connection);
+            return indexed;
+        });
+    }
+
+    private void unindex(int followeeId, Connection connection) {
+        byFollowee.computeIfPresent(followeeId, (id, followers) -> {
+            followers.remove(connection);
+            return followers.isEmpty() ? null : followers;
+        });
+    }
+
+    private class Connection {
+        final String userId;
+        // Buffering is left to the subscriber's drop-oldest buffer, so emitting never fails for a slow client
+        final Sinks.Many<FeedPost> sink = Sinks.many().multicast().directBestEffort();
+        RoaringBitmap followees = new RoaringBitmap();
+        boolean closed;
+        volatile long loadedAt;
+
+        Connection(String userId) {
+            this.userId = userId;
+        }
+
+        void loadFollowees() {
+            loadedAt = System.currentTimeMillis();
+            followGraph.getFolloweesReactive(userId).subscribe(
+                    this::updateFollowees,
+                    e -> System.err.println("Could not load followees of " + userId + " for push: " + e.getMessage()));
+        }
+
+        // Only the follows and unfollows since the last load touch the index
+        synchronized void updateFollowees(RoaringBitmap loaded) {
+            if (closed)
+                return;
+            RoaringBitmap.andNot(followees, loaded).forEach((int followeeId) -> unindex(followeeId, this));
+            RoaringBitmap.andNot(loaded, followees).forEach((int followeeId) -> index(followeeId, this));
+            followees = loaded;
+        }
+
+        synchronized void close() {
+            closed = true;
+            followees.forEach((int followeeId) -> unindex(followeeId, this));
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedCursor;
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Server-side Lua scripts for the feed sorted sets (see resources/scripts).
+ * RedisTemplate runs them with EVALSHA and only sends the script body the first time a
+ * Redis node hasn't seen it, so every call is a single round trip.
+ */
+@Component
+public class FeedScripts {
+
+    // Keeps a single script invocation short when fanning out to many timelines
+    private static final int MAX_KEYS_PER_CALL = 500;
+
+    private static final RedisScript<Long> INSERT_AND_TRIM =
+            RedisScript.of(new ClassPathResource("scripts/insert_and_trim.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> MULTI_AUTHOR_FETCH =
+            RedisScript.of(new ClassPathResource("scripts/multi_author_fetch.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> TIMELINE_MERGE =
+            RedisScript.of(new ClassPathResource("scripts/timeline_merge.lua"), List.class);
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> FEED_SINCE =
+            RedisScript.of(new ClassPathResource("scripts/feed_since.lua"), List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+
+    // Hard cap on each author's recent_posts set
+    @Value("${feed.recent-posts.max-size:50}")
+    private int recentPostsMaxSize;
+
+    // An author's recent_posts expires after this long without a new post (rebuilt from Mongo on demand)
+    @Value("${feed.recent-posts.ttl:P30D}")
+    private Duration recentPostsTtl;
+
+    @Autowired
+    public FeedScripts(RedisTemplate<String, Object> redisTemplate, ReactiveRedisTemplate<String, Object> reactiveRedisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+    }
+
+    // ZADD the entries for each key, then trim every touched key to its newest maxSize members.
+    // A non-null ttl is (re)applied to every written key; existingOnly skips keys that don't exist
+    public void insertAndTrim(Map<String, List<FeedEntry>> entriesByKey, int maxSize, Duration ttl, boolean existingOnly) {
+        List<String> keys = new ArrayList<>(entriesByKey.keySet());
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_CALL) {
+            List<String> chunk = keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_CALL));
+            redisTemplate.execute(INSERT_AND_TRIM, chunk, insertArgs(chunk, entriesByKey, maxSize, ttl, existingOnly).toArray());
+        }
+    }
+
+    // Non-blocking variant of insertAndTrim
+    public Mono<Void> insertAndTrimReactive(Map<String, List<FeedEntry>> entriesByKey, int maxSize, Duration ttl, boolean existingOnly) {
+        List<String> keys = new ArrayList<>(entriesByKey.keySet());
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_CALL)
+            chunks.add(keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_CALL)));
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> reactiveRedisTemplate.execute(INSERT_AND_TRIM, chunk, insertArgs(chunk, entriesByKey, maxSize, ttl, existingOnly)))
+                .then();
+    }
+
+    // Add posts to their authors' recent_posts sets (authorId -> entries); posting keeps an author's set alive
+    public void insertRecentPosts(Map<String, List<FeedEntry>> entriesByAuthor) {
+        insertAndTrim(recentPostKeys(entriesByAuthor), recentPostsMaxSize, recentPostsTtl, false);
+    }
+
+    public Mono<Void> insertRecentPostsReactive(Map<String, List<FeedEntry>> entriesByAuthor) {
+        return insertAndTrimReactive(recentPostKeys(entriesByAuthor), recentPostsMaxSize, recentPostsTtl, false);
+    }
+
+    private static Map<String, List<FeedEntry>> recentPostKeys(Map<String, List<FeedEntry>> entriesByAuthor) {
+        Map<String, List<FeedEntry>> entriesByKey = new LinkedHashMap<>();
+        entriesByAuthor.forEach((authorId, entries) -> entriesByKey.put("recent_posts:" + authorId, entries));
+        return entriesByKey;
+    }
+
+    // Same posts into many existing keys, e.g. one author's new posts into every active follower's timeline
+    public void pushToExisting(Collection<String> keys, List<FeedEntry> entries, int maxSize) {
+        Map<String, List<FeedEntry>> entriesByKey = new LinkedHashMap<>();
+        keys.forEach(key -> entriesByKey.put(key, entries));
+        insertAndTrim(entriesByKey, maxSize, null, true);
+    }
+
+    // Per key, a flat member/score list of at most count members with score <= maxScore, skipping offset
+    @SuppressWarnings("unchecked")
+    public List<List<Object>> fetch(List<String> keys, double maxScore, long offset, int count) {
+        List<List<Object>> result = redisTemplate.execute(MULTI_AUTHOR_FETCH, keys,
+                scoreArg(maxScore), String.valueOf(offset), String.valueOf(count));
+        return result != null ? result : Collections.emptyList();
+    }
+
+    // The newest count entries strictly after the cursor across all keys, merged and deduplicated on the server
+    @SuppressWarnings("unchecked")
+    public List<FeedEntry> merge(List<String> keys, FeedCursor cursor, int count) {
+        double maxScore = cursor != null ? cursor.getScore() : Double.POSITIVE_INFINITY;
+        String afterId = cursor != null ? cursor.getPostId() : "";
+        List<Object> flat = redisTemplate.execute(TIMELINE_MERGE, keys, scoreArg(maxScore), afterId, String.valueOf(count));
+        return toEntries(flat);
+    }
+
+    // Non-blocking variant of merge for any number of keys: at most concurrency script calls of
+    // MAX_KEYS_PER_CALL keys each are in flight, and their pages are merged once more here
+    @SuppressWarnings("unchecked")
+    public Mono<List<FeedEntry>> mergeReactive(List<String> keys, FeedCursor cursor, int count, int concurrency) {
+        List<Object> args = Arrays.asList(scoreArg(cursor != null ? cursor.getScore() : Double.POSITIVE_INFINITY),
+                cursor != null ? cursor.getPostId() : "", String.valueOf(count));
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_CALL)
+            chunks.add(keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_CALL)));
+        return Flux.fromIterable(chunks)
+                .flatMap(chunk -> reactiveRedisTemplate.execute(TIMELINE_MERGE, chunk, args), concurrency)
+                .flatMapIterable(flat -> toEntries((List<Object>) flat))
+                .collectList()
+                .map(entries -> newestDistinct(entries, count));
+    }
+
+    // The oldest count entries strictly newer than the cursor across all keys, newest first; empty when nothing changed
+    @SuppressWarnings("unchecked")
+    public List<FeedEntry> since(List<String> keys, FeedCursor cursor, int count) {
+        List<FeedEntry> entries = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_CALL) {
+            List<String> chunk = keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_CALL));
+            entries.addAll(toEntries(redisTemplate.execute(FEED_SINCE, chunk, sinceArgs(cursor, count))));
+        }
+        return oldestDistinct(entries, count);
+    }
+
+    // Non-blocking variant of since
+    @SuppressWarnings("unchecked")
+    public Mono<List<FeedEntry>> sinceReactive(List<String> keys, FeedCursor cursor, int count) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_CALL)
+            chunks.add(keys.subList(from, Math.min(keys.size(), from + MAX_KEYS_PER_CALL)));
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> reactiveRedisTemplate.execute(FEED_SINCE, chunk, Arrays.asList(sinceArgs(cursor, count))))
+                .flatMapIterable(flat -> toEntries((List<Object>) flat))
+                .collectList()
+                .map(entries -> oldestDistinct(entries, count));
+    }
+
+    private static Object[] sinceArgs(FeedCursor cursor, int count) {
+        return new Object[]{String.valueOf(cursor.getScore()), cursor.getPostId(), String.valueOf(count)};
+    }
+
+    // Only needed across chunks: each script call already returns its keys merged and deduplicated
+    private static List<FeedEntry> newestDistinct(List<FeedEntry> entries, int count) {
+        Map<String, FeedEntry> byPostId = new LinkedHashMap<>();
+        entries.forEach(entry -> byPostId.putIfAbsent(entry.getPostId(), entry));
+        return byPostId.values().stream().sorted(FeedEntry.NEWEST_FIRST).limit(count).toList();
+    }
+
+    // The oldest count of the entries, returned newest first like every other feed read
+    private static List<FeedEntry> oldestDistinct(List<FeedEntry> entries, int count) {
+        Map<String, FeedEntry> byPostId = new LinkedHashMap<>();
+        entries.forEach(entry -> byPostId.putIfAbsent(entry.getPostId(), entry));
+        return byPostId.values().stream().sorted(FeedEntry.NEWEST_FIRST.reversed()).limit(count)
+                .sorted(FeedEntry.NEWEST_FIRST).toList();
+    }
+
+    private static List<FeedEntry> toEntries(List<Object> flat) {
+        if (flat == null)
+            return Collections.emptyList();
+
+        List<FeedEntry> entries = new ArrayList<>(flat.size() / 2);
+        for (int i = 0; i + 1 < flat.size(); i += 2)
+            entries.add(new FeedEntry(String.valueOf(flat.get(i)), FeedEntry.fromRawScore(Double.parseDouble(String.valueOf(flat.get(i + 1))))));
+        return entries;
+    }
+
+    // maxSize, ttl, existingOnly, then per key the entry count followed by score/member pairs
+    private static List<Object> insertArgs(List<String> keys, Map<String, List<FeedEntry>> entriesByKey, int maxSize, Duration ttl, boolean existingOnly) {
+        List<Object> args = new ArrayList<>();
+        args.add(String.valueOf(maxSize));
+        args.add(String.valueOf(ttl != null ? ttl.toSeconds() : 0));
+        args.add(existingOnly ? "1" : "0");
+        for (String key : keys) {
+            List<FeedEntry> entries = entriesByKey.get(key);
+            args.add(String.valueOf(entries.size()));
+            for (FeedEntry entry : entries) {
+                args.add(String.valueOf(entry.getScore()));
+                args.add(entry.getPostId());
+            }
+        }
+        return args;
+    }
+
+    private static String scoreArg(double score) {
+        return score == Double.POSITIVE_INFINITY ? "+inf" : String.valueOf((long) score);
+    }
+}
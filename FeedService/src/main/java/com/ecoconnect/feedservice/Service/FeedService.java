@@ -1,137 +1,204 @@
 package com.ecoconnect.feedservice.Service;
 
+import com.ecoconnect.feedservice.Model.FeedCursor;
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import com.ecoconnect.feedservice.Model.FeedPage;
 import com.ecoconnect.feedservice.Model.FeedPost;
-import com.ecoconnect.feedservice.Model.User;
 import com.ecoconnect.feedservice.Repository.FeedPostRepository;
-import com.ecoconnect.feedservice.Repository.UserRepository;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
 public class FeedService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
     private final FeedPostRepository feedPostRepository;
-    private final UserRepository userRepository;
+    private final TimelineService timelineService;
+    private final FeedMerger feedMerger;
+    private final FeedPostCache feedPostCache;
+    private final AuthorProfileCache authorProfileCache;
+    private final FeedScripts feedScripts;
+    private final FollowGraph followGraph;
+    private final UserIdInterner userIdInterner;
+    private final SeenPostFilter seenPostFilter;
+    private final RankedTimeline rankedTimeline;
 
     @Autowired
-    public FeedService(RedisTemplate<String, Object> redisTemplate, FeedPostRepository feedPostRepository, UserRepository userRepository) {
-        this.redisTemplate = redisTemplate;
+    public FeedService(FeedPostRepository feedPostRepository, TimelineService timelineService, FeedMerger feedMerger, FeedPostCache feedPostCache, AuthorProfileCache authorProfileCache, FeedScripts feedScripts, FollowGraph followGraph, UserIdInterner userIdInterner, SeenPostFilter seenPostFilter, RankedTimeline rankedTimeline) {
         this.feedPostRepository = feedPostRepository;
-        this.userRepository = userRepository;
+        this.timelineService = timelineService;
+        this.feedMerger = feedMerger;
+        this.feedPostCache = feedPostCache;
+        this.authorProfileCache = authorProfileCache;
+        this.feedScripts = feedScripts;
+        this.followGraph = followGraph;
+        this.userIdInterner = userIdInterner;
+        this.seenPostFilter = seenPostFilter;
+        this.rankedTimeline = rankedTimeline;
     }
 
-    public List<FeedPost> getFeed(String userId, int limit, String olderThan) {
-        Set<String> followees = getFollowees(userId);
+    // skipSeen leaves out posts already delivered to the user (see SeenPostFilter) and records this page as delivered
+    public FeedPage getFeed(String userId, int limit, FeedCursor cursor, boolean skipSeen) {
+        RoaringBitmap followees = followGraph.getFollowees(userId);
         if (followees.isEmpty())
-            return Collections.emptyList();
-
-        Set<FeedPost> combined = new TreeSet<>(Comparator.comparing(FeedPost::getCreatedDate).reversed());
+            return new FeedPage(Collections.emptyList(), null);
+        String seenBy = skipSeen ? userId : null;
+
+        // Serve from the materialized timeline when it can fill the page
+        if (timelineService.isEnabled()) {
+            List<FeedEntry> timelineEntries = getFeedFromTimeline(userId, followees, limit, cursor);
+            if (timelineEntries.size() >= limit) {
+                if (cursor == null) // Keep the timeline of an active reader from expiring
+                    timelineService.touch(userId);
+                return toPage(timelineEntries, limit, followees, seenBy);
+            }
+        }
 
-        // Fetch from Redis
-        Set<FeedPost> redisPosts = fetchFeedPostsFromRedis(followees, limit, olderThan);
-        combined.addAll(redisPosts);
+        // Merge the followees' recent_posts in Redis
+        List<String> followeeIds = userIdInterner.toObjectIds(followees);
+        List<FeedEntry> entries = feedMerger.merge(recentPostKeys(followeeIds), limit, cursor);
 
         // If Redis doesn't have enough, fallback to Mongo
-        if (combined.size() < limit) {
-            List<FeedPost> mongoPosts = fetchFeedPostsFromMongoDB(followees.stream().toList(), limit - combined.size(), olderThan);
+        if (entries.size() < limit) {
+            List<FeedPost> mongoPosts = fetchFeedPostsFromMongoDB(followeeIds, limit, cursor);
 
             // Deduplicate based on postId
-            Set<String> seenIds = combined.stream().map(FeedPost::getPostId).collect(Collectors.toSet());
+            Set<String> seenIds = entries.stream().map(FeedEntry::getPostId).collect(Collectors.toSet());
             List<FeedPost> newOnly = mongoPosts.stream()
                     .filter(p -> !seenIds.contains(p.getPostId()))
                     .toList();
 
-            combined.addAll(newOnly);
+            List<FeedEntry> combined = new ArrayList<>(entries);
+            newOnly.forEach(post -> combined.add(FeedEntry.of(post)));
+            combined.sort(FeedEntry.NEWEST_FIRST);
+            entries = combined.subList(0, Math.min(limit, combined.size()));
             cacheFeedPostsToRedis(newOnly); // Cache only new ones
         }
 
-        // Final sorted + limited result
-        return combined.stream()
-                .sorted(Comparator.comparing(FeedPost::getCreatedDate).reversed())
-                .limit(limit)
-                .toList();
-    }
+        FeedPage page = toPage(entries, limit, null, seenBy);
+
+        // Seed the timeline so the next read of the first page is served by it
+        if (cursor == null)
+            timelineService.addToTimeline(userId, entries);
 
-    private Set<String> getFollowees(String userId) {
-        Set<Object> cachedFollowees = redisTemplate.opsForSet().members("followees:" + userId);
+        return page;
+    }
 
-        if (cachedFollowees != null && !cachedFollowees.isEmpty()) {
-            return cachedFollowees.stream().map(Object::toString).collect(Collectors.toSet());
+    // Ranked by recency decay and author affinity (see RankedTimeline); the first read builds the ranked timeline
+    public FeedPage getRankedFeed(String userId, int limit, FeedCursor cursor, boolean skipSeen) {
+        RoaringBitmap followees = followGraph.getFollowees(userId);
+        if (followees.isEmpty())
+            return new FeedPage(Collections.emptyList(), null);
+
+        List<String> fanoutOnReadAuthors = timelineService.getFanoutOnReadAuthors(followees);
+        List<FeedEntry> entries = rankedTimeline.page(userId, fanoutOnReadAuthors, limit, cursor);
+        if (entries == null) {
+            Set<String> onRead = new HashSet<>(fanoutOnReadAuthors);
+            rankedTimeline.seed(userId, userIdInterner.toObjectIds(followees).stream().filter(id -> !onRead.contains(id)).toList());
+            entries = rankedTimeline.page(userId, fanoutOnReadAuthors, limit, cursor);
         }
+        if (entries == null) // Nothing to rank yet
+            entries = Collections.emptyList();
+
+        // Ranked timelines may still hold posts of accounts the user has since unfollowed
+        return toPage(entries, limit, followees, skipSeen ? userId : null);
+    }
 
-        User user = userRepository.findUserFollowing(userId);
-        Set<String> followees = (user != null) ? user.getFollowing() : Collections.emptySet();
-        if (followees != null && !followees.isEmpty())
-            updateFolloweesInRedis(userId,followees);
+    // Only the posts newer than the client's last-seen cursor, the oldest limit of them when there are more, so
+    // polling again from the page's head cursor picks up the rest; an empty page when nothing changed.
+    // The check is one script call over the followees' recent_posts, and Mongo is only read to hydrate new posts
+    public FeedPage getFeedSince(String userId, FeedCursor since, int limit) {
+        RoaringBitmap followees = followGraph.getFollowees(userId);
+        if (followees.isEmpty())
+            return new FeedPage(Collections.emptyList(), null);
 
-        return followees;
+        List<FeedEntry> entries = feedScripts.since(recentPostKeys(userIdInterner.toObjectIds(followees)), since, limit);
+        return entries.isEmpty() ? new FeedPage(Collections.emptyList(), null) : FeedPage.since(entries, limit, toPage(entries, limit, null, null).getPosts());
     }
 
-    private Set<FeedPost> fetchFeedPostsFromRedis(Set<String> followees, int limit, String olderThan) {
-        Set<FeedPost> feedPosts = new TreeSet<>(Comparator.comparing(FeedPost::getCreatedDate).reversed());
+    private List<FeedEntry> getFeedFromTimeline(String userId, RoaringBitmap followees, int limit, FeedCursor cursor) {
+        List<String> keys = new ArrayList<>();
+        keys.add(timelineService.timelineKey(userId));
 
-        Long maxScore = null;
-        if (olderThan != null && !olderThan.isEmpty()) {
-            maxScore = LocalDateTime.parse(olderThan).toEpochSecond(ZoneOffset.UTC);
-        }
+        // Followees with very large audiences are merged in at read time
+        keys.addAll(recentPostKeys(timelineService.getFanoutOnReadAuthors(followees)));
 
-        for (String followeeId : followees) {
-            Set<Object> postIds;
-            if (maxScore != null) {
-                postIds = redisTemplate.opsForZSet().reverseRangeByScore(
-                        "recent_posts:" + followeeId, 0, maxScore - 1, 0, limit
-                );
-            } else {
-                postIds = redisTemplate.opsForZSet().reverseRange(
-                        "recent_posts:" + followeeId, 0, limit - 1
-                );
-            }
+        // Merged on the server; timelines may still hold posts of accounts the user has since unfollowed
+        return feedScripts.merge(keys, cursor, limit);
+    }
 
-            if (postIds != null) {
-                List<FeedPost> posts = feedPostRepository.findAllById(
-                        postIds.stream().map(Object::toString).toList()
-                );
-                feedPosts.addAll(posts);
-            }
-        }
+    // Hydrates the merged entries from the near-cache, with at most one Mongo round trip, keeping the merge order.
+    // With seenBy, entries already delivered to that user are dropped first; paging still follows all entries
+    // A non-null followees keeps only the posts of authors in it, for sources that may hold others
+    private FeedPage toPage(List<FeedEntry> entries, int limit, RoaringBitmap followees, String seenBy) {
+        List<FeedEntry> delivered = seenBy != null ? seenPostFilter.unseen(seenBy, entries) : entries;
+        List<String> postIds = delivered.stream().map(FeedEntry::getPostId).toList();
+        List<FeedPost> hydrated = postIds.isEmpty() ? Collections.emptyList() : feedPostCache.findAllById(postIds);
+
+        List<FeedPost> posts = inMergeOrder(delivered, hydrated, followedBy(followees, hydrated));
+        Map<String, String> authorNames = authorProfileCache.resolveNames(posts.stream().map(FeedPost::getAuthorId).toList());
+        return withAuthorNames(entries, limit, posts, authorNames);
+    }
+
+    // One internAll for the page's distinct authors rather than one lookup per post
+    private Predicate<FeedPost> followedBy(RoaringBitmap followees, List<FeedPost> posts) {
+        if (followees == null || posts.isEmpty())
+            return post -> true;
+        Map<String, Integer> ids = userIdInterner.internAll(posts.stream().map(FeedPost::getAuthorId).distinct().toList());
+        return post -> followees.contains(ids.get(post.getAuthorId()));
+    }
+
+    static List<FeedPost> inMergeOrder(List<FeedEntry> entries, List<FeedPost> hydrated, Predicate<FeedPost> filter) {
+        Map<String, FeedPost> byId = new HashMap<>();
+        hydrated.forEach(p -> byId.put(p.getPostId(), p));
+        return entries.stream()
+                .map(e -> byId.get(e.getPostId()))
+                .filter(Objects::nonNull)
+                .filter(filter)
+                .toList();
+    }
+
+    // Cached posts are shared, so the author name goes on a copy
+    static FeedPage withAuthorNames(List<FeedEntry> entries, int limit, List<FeedPost> posts, Map<String, String> authorNames) {
+        List<FeedPost> named = posts.stream()
+                .map(p -> new FeedPost(p.getPostId(), p.getAuthorId(), p.getContent(), p.getCreatedDate(), p.getLikes(), p.getComments(), authorNames.get(p.getAuthorId())))
+                .toList();
 
-        return feedPosts;
+        String nextCursor = entries.isEmpty() || entries.size() < limit ? null : FeedCursor.after(entries.get(entries.size() - 1)).encode();
+        return new FeedPage(named, nextCursor);
     }
 
-    private List<FeedPost> fetchFeedPostsFromMongoDB(List<String> followees, int limit, String olderThan) {
-        if (olderThan == null || olderThan.isEmpty()) {
-            return feedPostRepository.findByAuthorIdInOrderByCreatedDateDesc(followees)
-                    .stream().limit(limit).toList();
+    static List<String> recentPostKeys(Collection<String> authorIds) {
+        return authorIds.stream().map(id -> "recent_posts:" + id).toList();
+    }
+
+    // Content-free candidates, limited and sorted by Mongo; the final page is hydrated separately
+    private List<FeedPost> fetchFeedPostsFromMongoDB(List<String> followees, int limit, FeedCursor cursor) {
+        Pageable page = PageRequest.of(0, limit);
+        if (cursor == null) {
+            return feedPostRepository.findFeedCandidates(followees, page);
         } else {
-            LocalDateTime cutoff = LocalDateTime.parse(olderThan);
-            return feedPostRepository.findByAuthorIdInAndCreatedDateBeforeOrderByCreatedDateDesc(followees, cutoff)
-                    .stream().limit(limit).toList();
+            // Inclusive bound so posts sharing the cursor's timestamp are not skipped
+            return feedPostRepository.findFeedCandidatesBefore(followees, cursor.toDateTime(), page)
+                    .stream().filter(p -> cursor.precedes(FeedEntry.of(p))).toList();
         }
     }
 
     private void cacheFeedPostsToRedis(List<FeedPost> posts) {
-        for (FeedPost post : posts) {
-            String key = "recent_posts:" + post.getAuthorId();
-            redisTemplate.opsForZSet().add(
-                    key,
-                    post.getPostId(),
-                    post.getCreatedDate().toEpochSecond(ZoneOffset.UTC)
-            );
-            redisTemplate.opsForZSet().removeRange(key, 0, -51);
-        }
+        if (posts.isEmpty())
+            return;
+
+        // One insert-and-trim script call for every author on the page
+        Map<String, List<FeedEntry>> entriesByAuthor = new LinkedHashMap<>();
+        for (FeedPost post : posts)
+            entriesByAuthor.computeIfAbsent(post.getAuthorId(), id -> new ArrayList<>()).add(FeedEntry.of(post));
+        feedScripts.insertRecentPosts(entriesByAuthor);
     }
 
-    public void updateFolloweesInRedis(String userId, Set<String> followees) {
-        redisTemplate.opsForSet().add("followees:" + userId, followees.toArray());
-        redisTemplate.expire("followees:" + userId, 1, TimeUnit.DAYS);
-    }
 }
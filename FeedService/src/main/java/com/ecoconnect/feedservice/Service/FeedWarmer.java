@@ -0,0 +1,114 @@
+package com.ecoconnect.feedservice.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms this instance's caches before it takes traffic. It runs as the last ApplicationRunner, and
+ * Spring Boot only reports readiness (/actuator/health/readiness) once every runner has returned, so
+ * during a rolling deploy the instance joins the pool with warm caches. For the most recently active
+ * users (see ActiveUserTracker) it bulk-loads follow sets, then builds each user's first feed page,
+ * which fills the user ID, post and author caches and repopulates any missing recent_posts from Mongo.
+ * Batches run on at most feed.warmup.parallelism threads, and warm-up gives up after feed.warmup.timeout.
+ */
+@Service
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class FeedWarmer implements ApplicationRunner {
+
+    private static final int USERS_PER_BATCH = 100;
+
+    private final ActiveUserTracker activeUserTracker;
+    private final FollowGraph followGraph;
+    private final FeedService feedService;
+
+    @Value("${feed.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${feed.warmup.users:5000}")
+    private int users;
+
+    @Value("${feed.warmup.page-size:50}")
+    private int pageSize;
+
+    @Value("${feed.warmup.parallelism:8}")
+    private int parallelism;
+
+    @Value("${feed.warmup.timeout:PT2M}")
+    private Duration timeout;
+
+    @Autowired
+    public FeedWarmer(ActiveUserTracker activeUserTracker, FollowGraph followGraph, FeedService feedService) {
+        this.activeUserTracker = activeUserTracker;
+        this.followGraph = followGraph;
+        this.feedService = feedService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled)
+            warm();
+    }
+
+    public void warm() {
+        long startedAt = System.currentTimeMillis();
+        List<String> userIds;
+        try {
+            userIds = activeUserTracker.mostRecent(users);
+        } catch (Exception e) {
+            System.err.println("Feed warm-up skipped: " + e.getMessage());
+            return;
+        }
+
+        AtomicInteger warmed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "feed-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> batches = new ArrayList<>();
+            for (int from = 0; from < userIds.size(); from += USERS_PER_BATCH) {
+                List<String> batch = userIds.subList(from, Math.min(userIds.size(), from + USERS_PER_BATCH));
+                batches.add(pool.submit(() -> warmUsers(batch, warmed)));
+            }
+
+            long deadline = startedAt + timeout.toMillis();
+            for (Future<?> batch : batches)
+                batch.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            System.out.println("Feed warm-up finished for " + warmed.get() + " users in " + (System.currentTimeMillis() - startedAt) + " ms");
+        } catch (TimeoutException e) {
+            System.err.println("Feed warm-up timed out after " + warmed.get() + " of " + userIds.size() + " users");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Feed warm-up stopped after " + warmed.get() + " users: " + e.getCause().getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void warmUsers(List<String> userIds, AtomicInteger warmed) {
+        followGraph.preload(userIds);
+        for (String userId : userIds) {
+            if (Thread.currentThread().isInterrupted())
+                return;
+            try {
+                feedService.getFeed(userId, pageSize, null, false); // Nothing is delivered, so nothing is marked seen
+            } catch (RuntimeException e) {
+                System.err.println("Feed warm-up failed for " + userId + ": " + e.getMessage());
+            }
+            warmed.incrementAndGet();
+        }
+    }
+}
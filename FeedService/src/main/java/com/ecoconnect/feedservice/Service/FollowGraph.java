@@ -0,0 +1,150 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.User;
+import com.ecoconnect.feedservice.Repository.ReactiveUserRepository;
+import com.ecoconnect.feedservice.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.*;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Followee sets as compressed bitmaps of interned user IDs (see UserIdInterner).
+ * Each set is stored in Redis as a serialized RoaringBitmap under "followees_bm:{userId}" and kept
+ * in process for a short TTL. The users collection stays the source of truth: follow events rewrite
+ * the affected bitmaps from it, and a missing bitmap is rebuilt from it on read.
+ */
+@Service
+public class FollowGraph {
+
+    static final String FOLLOWEES_PREFIX = "followees_bm:";
+    private static final Duration REDIS_TTL = Duration.ofDays(1);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final UserRepository userRepository;
+    private final ReactiveUserRepository reactiveUserRepository;
+    private final UserIdInterner userIdInterner;
+    private final Cache<String, RoaringBitmap> followees;
+
+    @Autowired
+    public FollowGraph(RedisTemplate<String, Object> redisTemplate, ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+                       UserRepository userRepository, ReactiveUserRepository reactiveUserRepository, UserIdInterner userIdInterner,
+                       @Value("${feed.follow-cache.max-size:100000}") long maxSize,
+                       @Value("${feed.follow-cache.ttl:PT30S}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.userRepository = userRepository;
+        this.reactiveUserRepository = reactiveUserRepository;
+        this.userIdInterner = userIdInterner;
+        // Short TTL: follow changes reach other instances through Redis within one TTL
+        this.followees = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Bitmaps are shared between requests and must not be modified
+    public RoaringBitmap getFollowees(String userId) {
+        RoaringBitmap cached = followees.getIfPresent(userId);
+        if (cached != null)
+            return cached;
+
+        Object stored = redisTemplate.opsForValue().get(FOLLOWEES_PREFIX + userId);
+        if (stored instanceof byte[] bytes) {
+            RoaringBitmap bitmap = deserialize(bytes);
+            followees.put(userId, bitmap);
+            return bitmap;
+        }
+
+        User user = userRepository.findUserFollowing(userId);
+        return store(userId, user != null ? user.getFollowing() : null);
+    }
+
+    // Non-blocking variant of getFollowees; interning unseen IDs after a Mongo load runs off the event loop
+    public Mono<RoaringBitmap> getFolloweesReactive(String userId) {
+        RoaringBitmap cached = followees.getIfPresent(userId);
+        if (cached != null)
+            return Mono.just(cached);
+
+        return reactiveRedisTemplate.opsForValue().get(FOLLOWEES_PREFIX + userId)
+                .filter(byte[].class::isInstance)
+                .map(stored -> {
+                    RoaringBitmap bitmap = deserialize((byte[]) stored);
+                    followees.put(userId, bitmap);
+                    return bitmap;
+                })
+                .switchIfEmpty(Mono.defer(() -> reactiveUserRepository.findUserFollowing(userId)
+                        .map(user -> Optional.ofNullable(user.getFollowing()))
+                        .defaultIfEmpty(Optional.empty())
+                        .publishOn(Schedulers.boundedElastic())
+                        .map(following -> store(userId, following.orElse(null)))));
+    }
+
+    // Loads many users' bitmaps into the in-process cache: one MGET, then one Mongo query for those Redis lacks
+    public void preload(Collection<String> userIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(userIds));
+        if (ids.isEmpty())
+            return;
+
+        List<Object> stored = redisTemplate.opsForValue().multiGet(ids.stream().map(id -> FOLLOWEES_PREFIX + id).toList());
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Object bytes = stored != null ? stored.get(i) : null;
+            if (bytes instanceof byte[] serialized)
+                followees.put(ids.get(i), deserialize(serialized));
+            else
+                missing.add(ids.get(i));
+        }
+        if (!missing.isEmpty())
+            refresh(missing);
+    }
+
+    // Rewrites the followee bitmaps of the given users from the users collection, e.g. after follow events
+    public void refresh(Collection<String> userIds) {
+        Map<String, Set<String>> following = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds))
+            following.put(user.getId(), user.getFollowing());
+        userIds.forEach(id -> store(id, following.get(id)));
+    }
+
+    private RoaringBitmap store(String userId, Set<String> following) {
+        RoaringBitmap bitmap = following != null ? userIdInterner.toBitmap(following) : new RoaringBitmap();
+        followees.put(userId, bitmap);
+        if (!bitmap.isEmpty())
+            redisTemplate.opsForValue().set(FOLLOWEES_PREFIX + userId, serialize(bitmap), REDIS_TTL);
+        else
+            redisTemplate.delete(FOLLOWEES_PREFIX + userId);
+        return bitmap;
+    }
+
+    private static byte[] serialize(RoaringBitmap bitmap) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(bitmap.serializedSizeInBytes());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            bitmap.serialize(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static RoaringBitmap deserialize(byte[] bytes) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            bitmap.deserialize(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bitmap;
+    }
+}
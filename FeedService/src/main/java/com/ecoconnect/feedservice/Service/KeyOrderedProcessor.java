@@ -0,0 +1,75 @@
+package com.ecoconnect.feedservice.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Processes a consumed batch with more parallelism than there are partitions, without reordering a key.
+ * Items are split into lanes by key hash: every item of one key lands in the same lane, in batch order,
+ * and the lanes run concurrently. The call returns once all lanes are done and rethrows the first failure,
+ * so the container redelivers the whole batch (listener writes are idempotent).
+ */
+@Component
+public class KeyOrderedProcessor {
+
+    private final int lanes;
+    private final ExecutorService executor;
+
+    public KeyOrderedProcessor(@Value("${feed.kafka.key-ordered.lanes:8}") int lanes) {
+        this.lanes = Math.max(1, lanes);
+        this.executor = Executors.newFixedThreadPool(this.lanes, runnable -> {
+            Thread thread = new Thread(runnable, "key-ordered-lane");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public <T> void process(List<T> items, Function<T, String> keyOf, Consumer<List<T>> work) {
+        if (lanes == 1 || items.size() <= 1) {
+            work.accept(items);
+            return;
+        }
+
+        List<List<T>> split = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++)
+            split.add(new ArrayList<>());
+        for (T item : items)
+            split.get(Math.floorMod(String.valueOf(keyOf.apply(item)).hashCode(), lanes)).add(item);
+
+        List<Future<?>> running = new ArrayList<>();
+        for (List<T> lane : split) {
+            if (!lane.isEmpty())
+                running.add(executor.submit(() -> work.accept(lane)));
+        }
+
+        RuntimeException failure = null;
+        for (Future<?> lane : running) {
+            try {
+                lane.get();
+            } catch (ExecutionException e) {
+                if (failure == null)
+                    failure = e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for key-ordered lanes", e);
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,54 @@
+package com.ecoconnect.feedservice.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps every instance's FeedPostCache coherent. Only the instance whose PostEventListener applied a
+ * post's edit or deletion sees that event, so once it has written the change to Mongo it publishes the
+ * postId to feed-post-invalidations, which every instance reads (see BroadcastSubscriber). A read that
+ * misses the cache after the invalidation therefore finds the new content.
+ */
+@Service
+public class PostCacheInvalidationListener {
+
+    public static final String TOPIC = "feed-post-invalidations";
+    private static final long SEND_TIMEOUT_SECONDS = 10;
+
+    private final FeedPostCache feedPostCache;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    public PostCacheInvalidationListener(FeedPostCache feedPostCache, KafkaTemplate<String, String> kafkaTemplate, BroadcastSubscriber broadcastSubscriber) {
+        this.feedPostCache = feedPostCache;
+        this.kafkaTemplate = kafkaTemplate;
+        broadcastSubscriber.subscribe(TOPIC, feedPostCache::invalidate);
+    }
+
+    // Called after the changes are in Mongo. Throws if an invalidation wasn't acknowledged, so the
+    // events are retried (they are idempotent) and the invalidations sent again
+    public void invalidateEverywhere(Collection<String> postIds) {
+        if (postIds.isEmpty())
+            return;
+        postIds.forEach(feedPostCache::invalidate);
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(postIds.size());
+        for (String postId : postIds)
+            sends.add(kafkaTemplate.send(TOPIC, postId, postId));
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while invalidating cached posts", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not invalidate cached posts on other instances", e);
+        }
+    }
+}
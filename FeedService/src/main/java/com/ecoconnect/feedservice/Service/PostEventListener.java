@@ -1,86 +1,154 @@
 package com.ecoconnect.feedservice.Service;
 
-import com.ecoconnect.feedservice.Repository.UserRepository;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.ecoconnect.feedservice.Repository.FeedPostRepository;
+import com.ecoconnect.feedservice.Model.FeedEntry;
 import com.ecoconnect.feedservice.Model.FeedPost;
 
 import java.time.LocalDateTime;
-
+import java.util.*;
+
+/**
+ * Consumes post-notifications a poll at a time. The batch is split into key-ordered lanes by postId,
+ * and each lane becomes one ordered bulk write to feedPosts plus one insert-and-trim script call and
+ * one Redis pipeline. Events that keep failing are moved to retry topics by EventRetryProcessor, and
+ * offsets are committed only after every lane is done or handed off. All writes are idempotent.
+ */
 @Service
 public class PostEventListener {
 
+    static final String TOPIC = "post-notifications";
+
     private final RedisTemplate<String, Object> redisTemplate;
-    private final FeedPostRepository feedPostRepository;
+    private final MongoTemplate mongoTemplate;
 
-    private final UserRepository userRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TimelineService timelineService;
+    private final FeedPostCache feedPostCache;
+    private final PostCacheInvalidationListener postCacheInvalidationListener;
+    private final FeedScripts feedScripts;
+    private final EventRetryProcessor eventRetryProcessor;
 
     @Autowired
-    public PostEventListener(RedisTemplate<String, Object> redisTemplate, FeedPostRepository feedPostRepository, UserRepository userRepository) {
+    public PostEventListener(RedisTemplate<String, Object> redisTemplate, MongoTemplate mongoTemplate, TimelineService timelineService, FeedPostCache feedPostCache, PostCacheInvalidationListener postCacheInvalidationListener, FeedScripts feedScripts, EventRetryProcessor eventRetryProcessor) {
         this.redisTemplate = redisTemplate;
-        this.feedPostRepository = feedPostRepository;
-        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.timelineService = timelineService;
+        this.feedPostCache = feedPostCache;
+        this.postCacheInvalidationListener = postCacheInvalidationListener;
+        this.feedScripts = feedScripts;
+        this.eventRetryProcessor = eventRetryProcessor;
+
+        // Records are keyed by postId, so lanes keyed the same way keep each post's events in order
+        eventRetryProcessor.register(TOPIC, event -> event.path("postId").asText(), this::applyEvents);
     }
 
-    @KafkaListener(topics = "post-notifications", groupId = "feed-service-group")
-    public void consumePostEvents(String message) {
-        try {
-            JsonNode event = objectMapper.readTree(message);
-            String messageType = event.get("messageType").asText();
+    @KafkaListener(topics = TOPIC, groupId = "feed-service-group", containerFactory = "batchListenerContainerFactory")
+    public void consumePostEvents(List<ConsumerRecord<String, String>> records) {
+        eventRetryProcessor.process(TOPIC, records);
+    }
 
+    private void applyEvents(List<JsonNode> events) {
+        List<JsonNode> created = new ArrayList<>();
+        List<JsonNode> updated = new ArrayList<>();
+        List<JsonNode> deleted = new ArrayList<>();
+
+        for (JsonNode event : events) {
+            String messageType = event.get("messageType").asText();
             if ("POST_CREATED".equals(messageType)) {
-                handlePostCreated(event);
+                created.add(event);
             } else if ("POST_UPDATED".equals(messageType)) {
-                handlePostUpdated(event);
+                updated.add(event);
             } else if ("POST_DELETED".equals(messageType)) {
-                handlePostDeleted(event);
+                deleted.add(event);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-    }
 
-    private void handlePostCreated(JsonNode event) {
-        String postId = event.get("postId").asText();
-        String creatorId = event.get("authorId").asText();
-        LocalDateTime createdTime = LocalDateTime.parse(event.get("timestamp").asText());
-        String authorName = userRepository.findById(creatorId).isPresent() ? userRepository.findById(creatorId).get().getUserName() : "";
+        // A post's events always arrive as created -> updated -> deleted, so applying the groups in that order is safe
+        List<FeedPost> createdPosts = collectCreated(created);
+        Map<String, JsonNode> updatedPosts = collectUpdated(updated);
+        Map<String, String> deletedPosts = collectDeleted(deleted);
+        if (createdPosts.isEmpty() && updatedPosts.isEmpty() && deletedPosts.isEmpty())
+            return;
+
+        Map<String, List<FeedEntry>> createdByAuthor = new LinkedHashMap<>();
+        for (FeedPost post : createdPosts)
+            createdByAuthor.computeIfAbsent(post.getAuthorId(), id -> new ArrayList<>()).add(FeedEntry.of(post));
 
-        // Store post in MongoDB
-        FeedPost feedPost = new FeedPost(postId, creatorId, event.get("content").asText(),createdTime, authorName);
-        feedPostRepository.save(feedPost);
+        writeToMongo(createdPosts, updatedPosts, deletedPosts);
+        writeToRedis(createdByAuthor, deletedPosts);
 
-        // Add to creator's recent posts in Redis
-        String creatorFeedKey = "recent_posts:" + creatorId;
-        redisTemplate.opsForZSet().add(creatorFeedKey, postId, System.currentTimeMillis());
+        createdPosts.forEach(feedPostCache::put);
+        // Only now that Mongo has the changes may instances drop their cached copies
+        Set<String> changedPosts = new LinkedHashSet<>(updatedPosts.keySet());
+        changedPosts.addAll(deletedPosts.keySet());
+        postCacheInvalidationListener.invalidateEverywhere(changedPosts);
+
+        // Push into followers' home timelines (no-op for authors above the follower threshold)
+        createdByAuthor.forEach(timelineService::fanOutPosts);
+    }
+
+    private List<FeedPost> collectCreated(List<JsonNode> events) {
+        if (events.isEmpty())
+            return Collections.emptyList();
+
+        List<FeedPost> posts = new ArrayList<>();
+        for (JsonNode event : events) {
+            String postId = event.get("postId").asText();
+            String creatorId = event.get("authorId").asText();
+            LocalDateTime createdTime = LocalDateTime.parse(event.get("timestamp").asText());
+            posts.add(new FeedPost(postId, creatorId, event.get("content").asText(), createdTime, 0, 0, null));
+        }
+        return posts;
     }
 
-    private void handlePostUpdated(JsonNode event) {
-        String postId = event.get("postId").asText();
+    // Latest event per post; several edits of one post in a batch collapse into one write
+    private Map<String, JsonNode> collectUpdated(List<JsonNode> events) {
+        Map<String, JsonNode> latestByPost = new LinkedHashMap<>();
+        for (JsonNode event : events)
+            latestByPost.put(event.get("postId").asText(), event);
+        return latestByPost;
+    }
 
-        // Update the post in Redis (if needed)
-        redisTemplate.opsForHash().put("posts", postId, event.toString());
+    // postId -> authorId
+    private Map<String, String> collectDeleted(List<JsonNode> events) {
+        Map<String, String> authorByPost = new LinkedHashMap<>();
+        for (JsonNode event : events)
+            authorByPost.put(event.get("postId").asText(), event.get("authorId").asText());
+        return authorByPost;
+    }
 
-        // Update MongoDB if needed
-        FeedPost feedPost = feedPostRepository.findById(postId).orElseThrow(() -> new RuntimeException("Post not found"));
-        feedPost.setContent(event.get("content").asText());
-        feedPostRepository.save(feedPost);
+    private void writeToMongo(List<FeedPost> createdPosts, Map<String, JsonNode> updatedPosts, Map<String, String> deletedPosts) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, FeedPost.class);
+        // Set rather than replaced, so a redelivered creation keeps the counts EngagementEventListener wrote
+        for (FeedPost post : createdPosts)
+            bulk.upsert(byId(post.getPostId()), Update.update("authorId", post.getAuthorId())
+                    .set("content", post.getContent()).set("createdDate", post.getCreatedDate()));
+        updatedPosts.forEach((postId, event) -> bulk.updateOne(byId(postId), Update.update("content", event.get("content").asText())));
+        deletedPosts.keySet().forEach(postId -> bulk.remove(byId(postId)));
+        bulk.execute();
     }
 
-    private void handlePostDeleted(JsonNode event) {
-        String postId = event.get("postId").asText();
-        String creatorId = event.get("authorId").asText();
+    // Edits only touch Mongo and the near-cache: recent_posts holds IDs and scores, which an edit doesn't change
+    private void writeToRedis(Map<String, List<FeedEntry>> createdByAuthor, Map<String, String> deletedPosts) {
+        // Add to creators' recent posts, trimmed to the per-author cap
+        if (!createdByAuthor.isEmpty())
+            feedScripts.insertRecentPosts(createdByAuthor);
 
-        // Delete post from Redis
-        redisTemplate.opsForZSet().remove("recent_posts:" + creatorId, postId);
+        if (!deletedPosts.isEmpty())
+            RedisPipelines.execute(redisTemplate, ops -> deletedPosts.forEach((postId, authorId) ->
+                    ops.opsForZSet().remove("recent_posts:" + authorId, postId)));
+    }
 
-        // Delete from MongoDB
-        feedPostRepository.deleteById(postId);
+    private static Query byId(String postId) {
+        return Query.query(Criteria.where("_id").is(postId));
     }
 }
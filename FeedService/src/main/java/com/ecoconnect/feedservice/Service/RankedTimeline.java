@@ -0,0 +1,205 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedCursor;
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Ranked home timelines ("ranked:{userId}"), kept for the users who read the ranked feed.
+ * A post's rank combines recency decay with the reader's affinity for its author: its weight is
+ * affinity * 2^(-age / half-life). For a given reader that orders posts exactly like the "virtual
+ * timestamp" createdMillis + half-life * log2(affinity), which doesn't depend on the time of the read.
+ * That is what the ZSET stores, so scores are computed once, when a post is fanned out, and reading a
+ * page is the same cursor merge as the chronological timeline.
+ * Affinities live in "affinity:{userId}" (authorId -> weight, 1 when absent) and grow with engagement;
+ * a change applies to the author's posts ranked after it.
+ */
+@Service
+public class RankedTimeline {
+
+    static final String RANKED_PREFIX = "ranked:";
+    static final String AFFINITY_PREFIX = "affinity:";
+    private static final int MAX_KEYS_PER_FETCH = 500;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final FeedScripts feedScripts;
+
+    @Value("${feed.ranked.half-life:PT6H}")
+    private Duration halfLife;
+
+    @Value("${feed.ranked.max-size:800}")
+    private int maxSize;
+
+    @Value("${feed.timeline.ttl:P7D}")
+    private Duration ttl;
+
+    @Value("${feed.ranked.seed-per-author:10}")
+    private int seedPerAuthor;
+
+    @Value("${feed.ranked.affinity-min:0.25}")
+    private double affinityMin;
+
+    @Value("${feed.ranked.affinity-max:8}")
+    private double affinityMax;
+
+    @Value("${feed.ranked.engagement-weight:0.25}")
+    private double engagementWeight;
+
+    @Value("${feed.ranked.affinity-ttl:P90D}")
+    private Duration affinityTtl;
+
+    @Autowired
+    public RankedTimeline(RedisTemplate<String, Object> redisTemplate, FeedScripts feedScripts) {
+        this.redisTemplate = redisTemplate;
+        this.feedScripts = feedScripts;
+    }
+
+    public String rankedKey(String userId) {
+        return RANKED_PREFIX + userId;
+    }
+
+    // Virtual timestamp of a post for a reader with the given affinity for its author
+    long rankScore(long createdScore, double affinity) {
+        double clamped = Math.min(affinityMax, Math.max(affinityMin, affinity));
+        return createdScore + Math.round(halfLife.toMillis() * Math.log(clamped) / Math.log(2));
+    }
+
+    // New posts of one author into the ranked timelines of the followers that have one
+    public void addPosts(String authorId, List<FeedEntry> posts, List<String> followerIds) {
+        if (followerIds.isEmpty())
+            return;
+
+        List<Object> affinities = RedisPipelines.execute(redisTemplate, ops ->
+                followerIds.forEach(followerId -> ops.opsForHash().get(AFFINITY_PREFIX + followerId, authorId)));
+        Map<String, List<FeedEntry>> entriesByKey = new LinkedHashMap<>();
+        for (int i = 0; i < followerIds.size(); i++) {
+            double affinity = affinityOf(affinities.get(i));
+            entriesByKey.put(rankedKey(followerIds.get(i)), posts.stream()
+                    .map(post -> new FeedEntry(post.getPostId(), rankScore(post.getScore(), affinity)))
+                    .toList());
+        }
+        feedScripts.insertAndTrim(entriesByKey, maxSize, null, true);
+    }
+
+    /**
+     * The user's next ranked page: the ranked timeline merged with the newest posts of the followees
+     * on fan-out-on-read, which are ranked at read time. The top limit are selected with a bounded heap.
+     * Returns null when the user has no ranked timeline yet.
+     */
+    public List<FeedEntry> page(String userId, List<String> fanoutOnReadAuthors, int limit, FeedCursor cursor) {
+        String key = rankedKey(userId);
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(key)))
+            return null;
+        if (cursor == null) // Keep the ranked timeline of an active reader from expiring
+            redisTemplate.expire(key, ttl);
+
+        TopK topK = new TopK(limit);
+        feedScripts.merge(List.of(key), cursor, limit).forEach(topK::offer);
+        if (!fanoutOnReadAuthors.isEmpty()) {
+            // Low affinity can sink a post created up to log2(1 / affinity-min) half-lives after the cursor below it
+            double maxScore = cursor != null ? cursor.getScore() - rankScore(0, affinityMin) : Double.POSITIVE_INFINITY;
+            Map<String, Double> affinities = affinities(userId, fanoutOnReadAuthors);
+            forEachRecentPost(fanoutOnReadAuthors, maxScore, limit, (authorId, entry) -> {
+                FeedEntry ranked = new FeedEntry(entry.getPostId(), rankScore(entry.getScore(), affinities.get(authorId)));
+                if (cursor == null || cursor.precedes(ranked))
+                    topK.offer(ranked);
+            });
+        }
+        return topK.newestFirst();
+    }
+
+    // Builds the ranked timeline from the followees' recent_posts, once, when the user first reads the ranked feed
+    public void seed(String userId, List<String> followeeIds) {
+        Map<String, Double> affinities = affinities(userId, followeeIds);
+        TopK topK = new TopK(maxSize);
+        forEachRecentPost(followeeIds, Double.POSITIVE_INFINITY, seedPerAuthor, (authorId, entry) ->
+                topK.offer(new FeedEntry(entry.getPostId(), rankScore(entry.getScore(), affinities.get(authorId)))));
+
+        List<FeedEntry> entries = topK.newestFirst();
+        if (!entries.isEmpty())
+            feedScripts.insertAndTrim(Map.of(rankedKey(userId), entries), maxSize, ttl, false);
+    }
+
+    // Engagement with an author raises the user's affinity for them, up to affinity-max
+    public void recordEngagement(String userId, String authorId) {
+        String key = AFFINITY_PREFIX + userId;
+        Double affinity = redisTemplate.opsForHash().increment(key, authorId, engagementWeight);
+        if (affinity != null && affinity + 1 > affinityMax) // Stored as an increment over the default of 1
+            redisTemplate.opsForHash().put(key, authorId, String.valueOf(affinityMax - 1));
+        redisTemplate.expire(key, affinityTtl);
+    }
+
+    public void onUnfollow(String followerId, String followeeId) {
+        redisTemplate.opsForHash().delete(AFFINITY_PREFIX + followerId, followeeId);
+    }
+
+    private Map<String, Double> affinities(String userId, List<String> authorIds) {
+        Map<String, Double> affinities = new HashMap<>();
+        if (authorIds.isEmpty())
+            return affinities;
+        List<Object> stored = redisTemplate.opsForHash().multiGet(AFFINITY_PREFIX + userId, new ArrayList<>(authorIds));
+        for (int i = 0; i < authorIds.size(); i++)
+            affinities.put(authorIds.get(i), affinityOf(stored != null ? stored.get(i) : null));
+        return affinities;
+    }
+
+    private static double affinityOf(Object stored) {
+        return stored != null ? 1 + Double.parseDouble(stored.toString()) : 1;
+    }
+
+    // The newest count entries of each author's recent_posts at or below maxScore, in one script call per 500 authors
+    private void forEachRecentPost(List<String> authorIds, double maxScore, int count, RecentPostConsumer consumer) {
+        for (int from = 0; from < authorIds.size(); from += MAX_KEYS_PER_FETCH) {
+            List<String> chunk = authorIds.subList(from, Math.min(authorIds.size(), from + MAX_KEYS_PER_FETCH));
+            List<List<Object>> results = feedScripts.fetch(FeedService.recentPostKeys(chunk), maxScore, 0, count);
+            for (int i = 0; i < results.size(); i++) {
+                List<Object> flat = results.get(i);
+                for (int j = 0; j + 1 < flat.size(); j += 2) {
+                    long score = FeedEntry.fromRawScore(Double.parseDouble(String.valueOf(flat.get(j + 1))));
+                    consumer.accept(chunk.get(i), new FeedEntry(String.valueOf(flat.get(j)), score));
+                }
+            }
+        }
+    }
+
+    private interface RecentPostConsumer {
+        void accept(String authorId, FeedEntry entry);
+    }
+
+    // Keeps the k highest-ranked distinct posts seen so far in a min-heap of size k
+    private static class TopK {
+        private final int k;
+        private final PriorityQueue<FeedEntry> heap;
+        private final Set<String> postIds = new HashSet<>();
+
+        TopK(int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<>(Math.max(1, k), FeedEntry.NEWEST_FIRST.reversed());
+        }
+
+        void offer(FeedEntry entry) {
+            if (k <= 0 || postIds.contains(entry.getPostId()))
+                return;
+            if (heap.size() < k) {
+                heap.add(entry);
+                postIds.add(entry.getPostId());
+            } else if (FeedEntry.NEWEST_FIRST.compare(entry, heap.peek()) < 0) {
+                postIds.remove(heap.poll().getPostId());
+                heap.add(entry);
+                postIds.add(entry.getPostId());
+            }
+        }
+
+        List<FeedEntry> newestFirst() {
+            List<FeedEntry> entries = new ArrayList<>(heap);
+            entries.sort(FeedEntry.NEWEST_FIRST);
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedCursor;
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import com.ecoconnect.feedservice.Model.FeedPage;
+import com.ecoconnect.feedservice.Model.FeedPost;
+import com.ecoconnect.feedservice.Repository.ReactiveFeedPostRepository;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking variant of FeedService.getFeed on the reactive Redis and Mongo drivers.
+ * Feed ZSETs are merged on the server by the timeline merge script, one call per chunk of keys with at
+ * most feed.reactive.max-concurrency calls in flight per request, and the whole request fails once
+ * feed.reactive.deadline has passed.
+ * Served pages match the blocking path: same timeline/recent_posts/Mongo fallbacks and cache writes.
+ */
+@Service
+public class ReactiveFeedService {
+
+    private final ReactiveFeedPostRepository reactiveFeedPostRepository;
+    private final TimelineService timelineService;
+    private final FeedPostCache feedPostCache;
+    private final AuthorProfileCache authorProfileCache;
+    private final FeedScripts feedScripts;
+    private final FollowGraph followGraph;
+    private final UserIdInterner userIdInterner;
+    private final SeenPostFilter seenPostFilter;
+
+    @Value("${feed.reactive.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${feed.reactive.deadline:PT2S}")
+    private Duration deadline;
+
+    @Autowired
+    public ReactiveFeedService(ReactiveFeedPostRepository reactiveFeedPostRepository, TimelineService timelineService, FeedPostCache feedPostCache, AuthorProfileCache authorProfileCache, FeedScripts feedScripts, FollowGraph followGraph, UserIdInterner userIdInterner, SeenPostFilter seenPostFilter) {
+        this.reactiveFeedPostRepository = reactiveFeedPostRepository;
+        this.timelineService = timelineService;
+        this.feedPostCache = feedPostCache;
+        this.authorProfileCache = authorProfileCache;
+        this.feedScripts = feedScripts;
+        this.followGraph = followGraph;
+        this.userIdInterner = userIdInterner;
+        this.seenPostFilter = seenPostFilter;
+    }
+
+    // skipSeen as in FeedService.getFeed
+    public Mono<FeedPage> getFeed(String userId, int limit, FeedCursor cursor, boolean skipSeen) {
+        return followGraph.getFolloweesReactive(userId)
+                .flatMap(followees -> followees.isEmpty()
+                        ? Mono.just(new FeedPage(Collections.emptyList(), null))
+                        : assemble(userId, followees, limit, cursor, skipSeen ? userId : null))
+                .timeout(deadline);
+    }
+
+    // Non-blocking variant of FeedService.getFeedSince
+    public Mono<FeedPage> getFeedSince(String userId, FeedCursor since, int limit) {
+        return followGraph.getFolloweesReactive(userId)
+                .flatMap(followees -> followees.isEmpty()
+                        ? Mono.just(Collections.<FeedEntry>emptyList())
+                        : userIdInterner.toObjectIdsReactive(followees)
+                                .flatMap(followeeIds -> feedScripts.sinceReactive(FeedService.recentPostKeys(followeeIds), since, limit)))
+                .flatMap(entries -> entries.isEmpty()
+                        ? Mono.just(new FeedPage(Collections.emptyList(), null))
+                        : toPage(entries, limit, null, null).map(page -> FeedPage.since(entries, limit, page.getPosts())))
+                .timeout(deadline);
+    }
+
+    private Mono<FeedPage> assemble(String userId, RoaringBitmap followees, int limit, FeedCursor cursor, String seenBy) {
+        // Serve from the materialized timeline when it can fill the page
+        Mono<FeedPage> fromTimeline = timelineService.isEnabled()
+                ? getFeedFromTimeline(userId, followees, limit, cursor).filter(entries -> entries.size() >= limit)
+                        .flatMap(entries -> toPage(entries, limit, followees, seenBy))
+                        .flatMap(page -> cursor == null ? timelineService.touchReactive(userId).thenReturn(page) : Mono.just(page))
+                : Mono.empty();
+        return fromTimeline.switchIfEmpty(Mono.defer(() -> userIdInterner.toObjectIdsReactive(followees)
+                .flatMap(followeeIds -> getFeedFromRecentPosts(userId, followeeIds, limit, cursor, seenBy))));
+    }
+
+    private Mono<List<FeedEntry>> getFeedFromTimeline(String userId, RoaringBitmap followees, int limit, FeedCursor cursor) {
+        return timelineService.getFanoutOnReadAuthorsReactive(followees)
+                .flatMap(fanoutOnReadAuthors -> {
+                    List<String> keys = new ArrayList<>();
+                    keys.add(timelineService.timelineKey(userId));
+                    keys.addAll(FeedService.recentPostKeys(fanoutOnReadAuthors));
+                    return readKeys(keys, limit, cursor);
+                });
+    }
+
+    private Mono<FeedPage> getFeedFromRecentPosts(String userId, List<String> followeeIds, int limit, FeedCursor cursor, String seenBy) {
+        return readKeys(FeedService.recentPostKeys(followeeIds), limit, cursor)
+                .flatMap(entries -> entries.size() >= limit
+                        ? Mono.just(entries)
+                        : withMongoCandidates(entries, followeeIds, limit, cursor))
+                .flatMap(entries -> toPage(entries, limit, null, seenBy).flatMap(page -> {
+                    // Seed the timeline so the next read of the first page is served by it
+                    if (cursor != null)
+                        return Mono.just(page);
+                    return timelineService.addToTimelineReactive(userId, entries).thenReturn(page);
+                }));
+    }
+
+    // Newest entries across the keys after the cursor, merged and deduplicated on the server
+    private Mono<List<FeedEntry>> readKeys(List<String> keys, int limit, FeedCursor cursor) {
+        return feedScripts.mergeReactive(keys, cursor, limit, maxConcurrency);
+    }
+
+    // Redis didn't have enough: top up from Mongo and cache the posts Redis was missing
+    private Mono<List<FeedEntry>> withMongoCandidates(List<FeedEntry> entries, List<String> followees, int limit, FeedCursor cursor) {
+        Pageable page = PageRequest.of(0, limit);
+        Flux<FeedPost> candidates = cursor == null
+                ? reactiveFeedPostRepository.findFeedCandidates(followees, page)
+                : reactiveFeedPostRepository.findFeedCandidatesBefore(followees, cursor.toDateTime(), page)
+                        .filter(p -> cursor.precedes(FeedEntry.of(p)));
+
+        Set<String> seenIds = entries.stream().map(FeedEntry::getPostId).collect(Collectors.toSet());
+        return candidates
+                .filter(p -> !seenIds.contains(p.getPostId()))
+                .collectList()
+                .flatMap(newOnly -> {
+                    List<FeedEntry> combined = new ArrayList<>(entries);
+                    Map<String, List<FeedEntry>> entriesByAuthor = new LinkedHashMap<>();
+                    for (FeedPost post : newOnly) {
+                        FeedEntry entry = FeedEntry.of(post);
+                        combined.add(entry);
+                        entriesByAuthor.computeIfAbsent(post.getAuthorId(), id -> new ArrayList<>()).add(entry);
+                    }
+                    combined.sort(FeedEntry.NEWEST_FIRST);
+                    List<FeedEntry> top = combined.subList(0, Math.min(limit, combined.size()));
+                    return feedScripts.insertRecentPostsReactive(entriesByAuthor).thenReturn(top);
+                });
+    }
+
+    // followees, when given, drops posts of authors the user no longer follows; seenBy as in FeedService.toPage
+    private Mono<FeedPage> toPage(List<FeedEntry> entries, int limit, RoaringBitmap followees, String seenBy) {
+        Mono<List<FeedEntry>> delivered = seenBy != null ? seenPostFilter.unseenReactive(seenBy, entries) : Mono.just(entries);
+        return delivered.flatMap(unseen -> hydrate(entries, unseen, limit, followees));
+    }
+
+    private Mono<FeedPage> hydrate(List<FeedEntry> entries, List<FeedEntry> delivered, int limit, RoaringBitmap followees) {
+        List<String> postIds = delivered.stream().map(FeedEntry::getPostId).toList();
+        Mono<List<FeedPost>> hydrated = postIds.isEmpty() ? Mono.just(Collections.emptyList()) : feedPostCache.findAllByIdReactive(postIds);
+
+        return hydrated.flatMap(found -> followedOnly(found, followees)).flatMap(found -> {
+            List<FeedPost> posts = FeedService.inMergeOrder(delivered, found, post -> true);
+            return authorProfileCache.resolveNamesReactive(posts.stream().map(FeedPost::getAuthorId).toList())
+                    .map(authorNames -> FeedService.withAuthorNames(entries, limit, posts, authorNames));
+        });
+    }
+
+    private Mono<List<FeedPost>> followedOnly(List<FeedPost> posts, RoaringBitmap followees) {
+        if (followees == null || posts.isEmpty())
+            return Mono.just(posts);
+        return userIdInterner.internAllReactive(posts.stream().map(FeedPost::getAuthorId).toList())
+                .map(ids -> posts.stream().filter(post -> followees.contains(ids.get(post.getAuthorId()))).toList());
+    }
+}
@@ -0,0 +1,264 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import com.ecoconnect.feedservice.Model.FeedPost;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Re-derives the "recent_posts:{authorId}" ZSETs from the feedPosts collection, for the authors who
+ * posted within feed.recent-posts.ttl; the sets of everyone else would have expired anyway.
+ * Authors are streamed from an aggregation cursor in batches, and each batch is one aggregation
+ * returning the newest posts of all its authors plus one insert-and-trim script call, which rewrites
+ * old scores in place, followed by dropping whatever is still v0-encoded. At most
+ * feed.rebuild.parallelism batches run at once. One instance at a time runs the job: it holds the
+ * "feed:rebuild:lease" key (SET NX PX), renewed while the job runs and deleted when it ends.
+ * "feed:score_version" records the encoding the sets were last rebuilt with; when it is missing
+ * (e.g. after a Redis flush) or outdated, the job starts on its own at startup.
+ */
+@Service
+public class RecentPostsRebuildJob implements ApplicationRunner {
+
+    static final String SCORE_VERSION_KEY = "feed:score_version";
+    private static final String LEASE_KEY = "feed:rebuild:lease";
+    private static final int AUTHORS_PER_BATCH = 100;
+
+    private static final RedisScript<Long> LEASE_RENEW =
+            RedisScript.of(new ClassPathResource("scripts/lease_renew.lua"), Long.class);
+    private static final RedisScript<Long> LEASE_RELEASE =
+            RedisScript.of(new ClassPathResource("scripts/lease_release.lua"), Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final FeedScripts feedScripts;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger authorsRebuilt = new AtomicInteger();
+    private volatile int authorsTotal;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String lastError;
+
+    @Value("${feed.recent-posts.max-size:50}")
+    private int recentPostsMaxSize;
+
+    @Value("${feed.recent-posts.ttl:P30D}")
+    private Duration recentPostsTtl;
+
+    @Value("${feed.rebuild.parallelism:4}")
+    private int parallelism;
+
+    @Value("${feed.rebuild.on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${feed.rebuild.lease:PT1M}")
+    private Duration lease;
+
+    @Autowired
+    public RecentPostsRebuildJob(RedisTemplate<String, Object> redisTemplate, MongoTemplate mongoTemplate, FeedScripts feedScripts) {
+        this.redisTemplate = redisTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.feedScripts = feedScripts;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (rebuildOnStartup && !isCurrent())
+            start(true);
+    }
+
+    // Starts the rebuild in the background; false if it is already running here or on another instance
+    public boolean start() {
+        return start(false);
+    }
+
+    private boolean start(boolean onlyIfOutdated) {
+        if (!running.compareAndSet(false, true))
+            return false;
+        boolean leased = false;
+        try {
+            leased = Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(LEASE_KEY, instanceId, lease));
+        } finally {
+            if (!leased)
+                running.set(false);
+        }
+        if (!leased)
+            return false;
+
+        Thread worker = new Thread(() -> rebuildHoldingLease(onlyIfOutdated), "recent-posts-rebuild");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running.get());
+        status.put("authorsRebuilt", authorsRebuilt.get());
+        status.put("authorsTotal", authorsTotal);
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("lastError", lastError);
+        status.put("scoreVersion", FeedEntry.SCORE_VERSION);
+        return status;
+    }
+
+    private boolean isCurrent() {
+        Object version = redisTemplate.opsForValue().get(SCORE_VERSION_KEY);
+        return version != null && String.valueOf(FeedEntry.SCORE_VERSION).equals(version.toString());
+    }
+
+    private void rebuildHoldingLease(boolean onlyIfOutdated) {
+        AtomicBoolean leaseLost = new AtomicBoolean();
+        ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recent-posts-rebuild-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long renewEvery = Math.max(1, lease.toMillis() / 3);
+        renewer.scheduleWithFixedDelay(() -> {
+            try {
+                if (!Long.valueOf(1).equals(redisTemplate.execute(LEASE_RENEW, List.of(LEASE_KEY), instanceId, String.valueOf(lease.toMillis()))))
+                    leaseLost.set(true);
+            } catch (Exception e) {
+                System.err.println("Could not renew the recent_posts rebuild lease: " + e.getMessage());
+            }
+        }, renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+
+        try {
+            // Another instance may have finished a rebuild between our version check and taking the lease
+            if (onlyIfOutdated && isCurrent())
+                return;
+            rebuild(leaseLost);
+        } finally {
+            renewer.shutdownNow();
+            try {
+                redisTemplate.execute(LEASE_RELEASE, List.of(LEASE_KEY), instanceId);
+            } catch (Exception e) {
+                System.err.println("Could not release the recent_posts rebuild lease, it expires in " + lease + ": " + e.getMessage());
+            }
+            running.set(false);
+        }
+    }
+
+    private void rebuild(AtomicBoolean leaseLost) {
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        lastError = null;
+        authorsRebuilt.set(0);
+        authorsTotal = 0;
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        // Bounds the batches read ahead of the pool, so the author stream is never held in memory
+        Semaphore inFlight = new Semaphore(Math.max(1, parallelism) * 2);
+        List<Future<?>> batches = new ArrayList<>();
+        try (Stream<Document> authors = streamActiveAuthors()) {
+            List<String> batch = new ArrayList<>(AUTHORS_PER_BATCH);
+            for (Iterator<Document> it = authors.iterator(); it.hasNext(); ) {
+                batch.add(String.valueOf(it.next().get("_id")));
+                authorsTotal++;
+                if (batch.size() == AUTHORS_PER_BATCH || !it.hasNext()) {
+                    if (leaseLost.get())
+                        throw new IllegalStateException("The rebuild lease was taken over by another instance");
+                    inFlight.acquire();
+                    List<String> authorIds = batch;
+                    batches.add(pool.submit(() -> {
+                        try {
+                            rebuildAuthors(authorIds);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                    batch = new ArrayList<>(AUTHORS_PER_BATCH);
+                }
+                awaitDone(batches);
+            }
+            for (Future<?> submitted : batches)
+                submitted.get();
+            if (leaseLost.get())
+                throw new IllegalStateException("The rebuild lease was taken over by another instance");
+
+            redisTemplate.opsForValue().set(SCORE_VERSION_KEY, String.valueOf(FeedEntry.SCORE_VERSION));
+            System.out.println("recent_posts rebuild finished for " + authorsRebuilt.get() + " authors");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lastError = "Interrupted";
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            System.err.println("recent_posts rebuild stopped after " + authorsRebuilt.get() + " authors: " + e.getMessage());
+        } finally {
+            pool.shutdownNow();
+            finishedAt = LocalDateTime.now();
+        }
+    }
+
+    // Drops the finished batches, rethrowing the first failure
+    private static void awaitDone(List<Future<?>> batches) throws InterruptedException, ExecutionException {
+        for (Iterator<Future<?>> it = batches.iterator(); it.hasNext(); ) {
+            Future<?> batch = it.next();
+            if (batch.isDone()) {
+                batch.get();
+                it.remove();
+            }
+        }
+    }
+
+    // Distinct authors with a post inside the retention window, read through a cursor rather than one distinct result
+    private Stream<Document> streamActiveAuthors() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(recentPostsTtl);
+        Aggregation authors = Aggregation.newAggregation(
+                        Aggregation.match(Criteria.where("createdDate").gte(cutoff)),
+                        Aggregation.group("authorId"))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).cursorBatchSize(1000).build());
+        return mongoTemplate.aggregateStream(authors, FeedPost.class, Document.class);
+    }
+
+    private void rebuildAuthors(List<String> authorIds) {
+        // The newest recent_posts.max-size posts of every author in the batch, in one round trip
+        AggregationOperation newestPerAuthor = context -> new Document("$group", new Document("_id", "$authorId")
+                .append("posts", new Document("$topN", new Document("n", recentPostsMaxSize)
+                        .append("sortBy", new Document("createdDate", -1).append("_id", -1))
+                        .append("output", new Document("_id", "$_id").append("createdDate", "$createdDate")))));
+        Aggregation newest = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("authorId").in(authorIds)),
+                newestPerAuthor);
+
+        Map<String, List<FeedEntry>> entriesByAuthor = new LinkedHashMap<>();
+        for (Document author : mongoTemplate.aggregate(newest, FeedPost.class, Document.class)) {
+            List<FeedEntry> entries = new ArrayList<>();
+            for (Document post : author.getList("posts", Document.class))
+                entries.add(FeedEntry.of(mongoTemplate.getConverter().read(FeedPost.class, post)));
+            if (!entries.isEmpty())
+                entriesByAuthor.put(String.valueOf(author.get("_id")), entries);
+        }
+
+        // Rewriting in place keeps posts ingested while the batch ran
+        if (!entriesByAuthor.isEmpty()) {
+            feedScripts.insertRecentPosts(entriesByAuthor);
+            RedisPipelines.execute(redisTemplate, ops -> entriesByAuthor.keySet().forEach(authorId ->
+                    ops.opsForZSet().removeRangeByScore("recent_posts:" + authorId, 0, FeedEntry.LEGACY_SECONDS_CEILING)));
+        }
+        authorsRebuilt.addAndGet(authorIds.size());
+    }
+}
@@ -0,0 +1,28 @@
+package com.ecoconnect.feedservice.Service;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Runs a batch of template operations in a single pipelined round trip
+final class RedisPipelines {
+
+    private RedisPipelines() {
+    }
+
+    // Results come back deserialized, in the order the commands were issued
+    static List<Object> execute(RedisTemplate<String, Object> redisTemplate, Consumer<RedisOperations<String, Object>> commands) {
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                commands.accept((RedisOperations<String, Object>) operations);
+                return null;
+            }
+        });
+    }
+}
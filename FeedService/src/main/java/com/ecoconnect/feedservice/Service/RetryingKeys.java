@@ -0,0 +1,79 @@
+package com.ecoconnect.feedservice.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Keys of the feed listeners with events in the retry tiers (see EventRetryProcessor), shared by every
+ * instance because a key's main partition and its retry partitions may be consumed by different ones.
+ * Per listener topic, "retrying:{topic}:pending" counts each key's events in the tiers and
+ * "retrying:{topic}:head" holds the tier its oldest one waits in. Later events of the key are sent to
+ * that tier too, so they are applied after it.
+ */
+@Component
+public class RetryingKeys {
+
+    private static final RedisScript<Long> ENTER =
+            RedisScript.of(new ClassPathResource("scripts/retry_key_enter.lua"), Long.class);
+    private static final RedisScript<Long> LEAVE =
+            RedisScript.of(new ClassPathResource("scripts/retry_key_leave.lua"), Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    public RetryingKeys(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    // Tier of the oldest event in retry per key, for the keys that have one; one HMGET for all of them
+    public Map<String, Integer> headTiers(String topic, Collection<String> keys) {
+        if (keys.isEmpty())
+            return Collections.emptyMap();
+        List<Object> fields = new ArrayList<>(new LinkedHashSet<>(keys));
+        fields.remove(null);
+        if (fields.isEmpty())
+            return Collections.emptyMap();
+        List<Object> tiers = redisTemplate.opsForHash().multiGet(headKey(topic), fields);
+        Map<String, Integer> retrying = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (tiers.get(i) != null)
+                retrying.put((String) fields.get(i), Integer.parseInt(String.valueOf(tiers.get(i))));
+        }
+        return retrying;
+    }
+
+    public Integer headTier(String topic, String key) {
+        if (key == null)
+            return null;
+        return headTiers(topic, List.of(key)).get(key);
+    }
+
+    // An event of the key enters the tiers; returns the tier to send it to, which is tier unless the key has older ones
+    public int enter(String topic, String key, int tier) {
+        Long head = redisTemplate.execute(ENTER, List.of(pendingKey(topic), headKey(topic)), key, String.valueOf(tier));
+        return head != null ? head.intValue() : tier;
+    }
+
+    // The key's oldest event failed again and moved on to tier
+    public void headMoved(String topic, String key, int tier) {
+        redisTemplate.opsForHash().put(headKey(topic), key, String.valueOf(tier));
+    }
+
+    // One event of the key left the tiers, applied or dead-lettered
+    public void leave(String topic, String key) {
+        redisTemplate.execute(LEAVE, List.of(pendingKey(topic), headKey(topic)), key);
+    }
+
+    private static String pendingKey(String topic) {
+        return "retrying:" + topic + ":pending";
+    }
+
+    private static String headKey(String topic) {
+        return "retrying:" + topic + ":head";
+    }
+}
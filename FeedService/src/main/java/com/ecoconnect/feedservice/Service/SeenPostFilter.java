@@ -0,0 +1,125 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-user record of the posts already delivered in a feed page, so a refresh can skip them before
+ * they are hydrated. Each user has a Bloom filter per rotation period under "seen:{userId}:{period}";
+ * a post counts as seen if the current or the previous period's filter has it, so posts are forgotten
+ * one to two periods after delivery. feed.seen-filter.bytes-per-user is split over the two filters,
+ * and the number of hash bits follows from feed.seen-filter.false-positive-rate: with the defaults each
+ * filter holds about 1600 posts at a 1% false-positive rate. A false positive hides a post the user
+ * hasn't seen, which is why the rate is configurable; the filter is off unless enabled.
+ */
+@Component
+public class SeenPostFilter {
+
+    static final String SEEN_PREFIX = "seen:";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SEEN_FILTER =
+            RedisScript.of(new ClassPathResource("scripts/seen_filter.lua"), List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final boolean enabled;
+    private final long bitsPerFilter;
+    private final int hashes;
+    private final Duration rotation;
+
+    @Autowired
+    public SeenPostFilter(RedisTemplate<String, Object> redisTemplate, ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+                          @Value("${feed.seen-filter.enabled:false}") boolean enabled,
+                          @Value("${feed.seen-filter.bytes-per-user:4096}") long bytesPerUser,
+                          @Value("${feed.seen-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                          @Value("${feed.seen-filter.rotation:P1D}") Duration rotation) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.enabled = enabled;
+        this.bitsPerFilter = Math.max(64, bytesPerUser * 8 / 2);
+        this.hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+        this.rotation = rotation;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Posts a filter of this size holds before exceeding the configured false-positive rate
+    public long capacityPerPeriod() {
+        return (long) (bitsPerFilter * Math.log(2) / hashes);
+    }
+
+    // The entries not delivered to this user before, in order; all of them are recorded as delivered
+    @SuppressWarnings("unchecked")
+    public List<FeedEntry> unseen(String userId, List<FeedEntry> entries) {
+        if (!enabled || entries.isEmpty())
+            return entries;
+        List<Object> seen = redisTemplate.execute(SEEN_FILTER, keys(userId), args(entries).toArray());
+        return withoutSeen(entries, seen);
+    }
+
+    // Non-blocking variant of unseen
+    @SuppressWarnings("unchecked")
+    public Mono<List<FeedEntry>> unseenReactive(String userId, List<FeedEntry> entries) {
+        if (!enabled || entries.isEmpty())
+            return Mono.just(entries);
+        return reactiveRedisTemplate.execute(SEEN_FILTER, keys(userId), args(entries))
+                .next()
+                .map(seen -> withoutSeen(entries, (List<Object>) seen))
+                .defaultIfEmpty(entries);
+    }
+
+    private List<String> keys(String userId) {
+        long period = System.currentTimeMillis() / rotation.toMillis();
+        return List.of(SEEN_PREFIX + userId + ":" + period, SEEN_PREFIX + userId + ":" + (period - 1));
+    }
+
+    // Bits per post, TTL, then k offsets per post by double hashing one 64-bit hash of the postId
+    private List<Object> args(List<FeedEntry> entries) {
+        List<Object> args = new ArrayList<>(2 + entries.size() * hashes);
+        args.add(String.valueOf(hashes));
+        args.add(String.valueOf(rotation.multipliedBy(2).toSeconds()));
+        for (FeedEntry entry : entries) {
+            long hash = fnv1a64(entry.getPostId());
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < hashes; i++)
+                args.add(String.valueOf(Math.floorMod(h1 + (long) i * h2, bitsPerFilter)));
+        }
+        return args;
+    }
+
+    private static List<FeedEntry> withoutSeen(List<FeedEntry> entries, List<Object> seen) {
+        if (seen == null)
+            return entries;
+        List<FeedEntry> unseen = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            if (i >= seen.size() || ((Number) seen.get(i)).longValue() == 0)
+                unseen.add(entries.get(i));
+        }
+        return unseen;
+    }
+
+    private static long fnv1a64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,178 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import com.ecoconnect.feedservice.Model.FeedPost;
+import com.ecoconnect.feedservice.Model.User;
+import com.ecoconnect.feedservice.Repository.FeedPostRepository;
+import com.ecoconnect.feedservice.Repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Maintains the materialized per-user home timelines ("timeline:{userId}").
+ * Posts from authors below the follower threshold are pushed to every follower's
+ * timeline when they are ingested (fan-out-on-write). Authors above the threshold
+ * are recorded in "fanout_read_authors" and merged into the feed at read time.
+ */
+@Service
+public class TimelineService {
+
+    static final String TIMELINE_PREFIX = "timeline:";
+    static final String FANOUT_READ_AUTHORS = "fanout_read_authors";
+    private static final int FOLLOW_BACKFILL_SIZE = 50;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final UserRepository userRepository;
+    private final FeedPostRepository feedPostRepository;
+    private final FeedScripts feedScripts;
+    private final UserIdInterner userIdInterner;
+    private final RankedTimeline rankedTimeline;
+    private final Cache<String, RoaringBitmap> fanoutReadAuthorsCache;
+
+    @Value("${feed.fanout.enabled:true}")
+    private boolean fanoutEnabled;
+
+    @Value("${feed.fanout.follower-threshold:10000}")
+    private long followerThreshold;
+
+    @Value("${feed.timeline.max-size:800}")
+    private int timelineMaxSize;
+
+    // A timeline expires after this long without a read; fan-out skips expired ones and the next read reseeds
+    @Value("${feed.timeline.ttl:P7D}")
+    private Duration timelineTtl;
+
+    @Autowired
+    public TimelineService(RedisTemplate<String, Object> redisTemplate, ReactiveRedisTemplate<String, Object> reactiveRedisTemplate, FeedPostRepository feedPostRepository, UserRepository userRepository, FeedScripts feedScripts, UserIdInterner userIdInterner, RankedTimeline rankedTimeline,
+                           @Value("${feed.fanout.read-authors-refresh:PT30S}") Duration readAuthorsRefresh) {
+        this.redisTemplate = redisTemplate;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.feedScripts = feedScripts;
+        this.userIdInterner = userIdInterner;
+        this.rankedTimeline = rankedTimeline;
+        this.fanoutReadAuthorsCache = Caffeine.newBuilder().expireAfterWrite(readAuthorsRefresh).build();
+        this.feedPostRepository = feedPostRepository;
+        this.userRepository = userRepository;
+    }
+
+    public boolean isEnabled() {
+        return fanoutEnabled;
+    }
+
+    // Push newly created posts of one author into the timelines of all the author's followers
+    public void fanOutPosts(String authorId, List<FeedEntry> posts) {
+        if (!fanoutEnabled)
+            return;
+
+        long followerCount = userRepository.countFollowers(authorId);
+        if (followerCount > followerThreshold) {
+            // Large audience: keep this author on fan-out-on-read
+            if (Long.valueOf(1).equals(redisTemplate.opsForSet().add(FANOUT_READ_AUTHORS, authorId)))
+                fanoutReadAuthorsCache.invalidateAll();
+            return;
+        }
+        if (Long.valueOf(1).equals(redisTemplate.opsForSet().remove(FANOUT_READ_AUTHORS, authorId)))
+            fanoutReadAuthorsCache.invalidateAll();
+
+        List<String> followerIds = userRepository.findFollowers(authorId).stream()
+                .map(User::getId)
+                .toList();
+        if (followerIds.isEmpty())
+            return;
+
+        List<String> timelineKeys = followerIds.stream().map(id -> TIMELINE_PREFIX + id).toList();
+        feedScripts.pushToExisting(timelineKeys, posts, timelineMaxSize);
+        rankedTimeline.addPosts(authorId, posts, followerIds);
+    }
+
+    // Backfill the follower's timeline with the followee's most recent posts
+    public void onFollow(String followerId, String followeeId) {
+        if (!fanoutEnabled || isFanoutOnReadAuthor(followeeId))
+            return;
+
+        List<FeedPost> recentPosts = feedPostRepository.findFeedCandidates(List.of(followeeId), PageRequest.of(0, FOLLOW_BACKFILL_SIZE));
+        if (recentPosts.isEmpty())
+            return;
+
+        addToTimeline(followerId, recentPosts.stream().map(FeedEntry::of).toList());
+    }
+
+    // Drop the followee's cached posts from the follower's timeline; anything older is filtered out at read time
+    public void onUnfollow(String followerId, String followeeId) {
+        rankedTimeline.onUnfollow(followerId, followeeId);
+        if (!fanoutEnabled)
+            return;
+
+        Set<Object> recentPostIds = redisTemplate.opsForZSet().range("recent_posts:" + followeeId, 0, -1);
+        if (recentPostIds != null && !recentPostIds.isEmpty())
+            redisTemplate.opsForZSet().remove(TIMELINE_PREFIX + followerId, recentPostIds.toArray());
+    }
+
+    // Seed a timeline from posts that were assembled by the fan-out-on-read path
+    public void addToTimeline(String userId, List<FeedEntry> entries) {
+        if (!fanoutEnabled || entries.isEmpty())
+            return;
+
+        feedScripts.insertAndTrim(Map.of(TIMELINE_PREFIX + userId, entries), timelineMaxSize, timelineTtl, false);
+    }
+
+    public Mono<Void> addToTimelineReactive(String userId, List<FeedEntry> entries) {
+        if (!fanoutEnabled || entries.isEmpty())
+            return Mono.empty();
+        return feedScripts.insertAndTrimReactive(Map.of(TIMELINE_PREFIX + userId, entries), timelineMaxSize, timelineTtl, false);
+    }
+
+    // Keeps the timeline of an active reader alive
+    public void touch(String userId) {
+        if (fanoutEnabled)
+            redisTemplate.expire(TIMELINE_PREFIX + userId, timelineTtl);
+    }
+
+    public Mono<Boolean> touchReactive(String userId) {
+        return fanoutEnabled ? reactiveRedisTemplate.expire(TIMELINE_PREFIX + userId, timelineTtl) : Mono.just(false);
+    }
+
+    public String timelineKey(String userId) {
+        return TIMELINE_PREFIX + userId;
+    }
+
+    // Followees that are served by fan-out-on-read, as one bitmap AND
+    public List<String> getFanoutOnReadAuthors(RoaringBitmap followees) {
+        RoaringBitmap authors = RoaringBitmap.and(followees, fanoutOnReadAuthors());
+        return authors.isEmpty() ? Collections.emptyList() : userIdInterner.toObjectIds(authors);
+    }
+
+    // The author bitmap is reloaded at most once per refresh interval, so this rarely blocks
+    public Mono<List<String>> getFanoutOnReadAuthorsReactive(RoaringBitmap followees) {
+        RoaringBitmap authors = fanoutReadAuthorsCache.getIfPresent(FANOUT_READ_AUTHORS);
+        if (authors != null)
+            return userIdInterner.toObjectIdsReactive(RoaringBitmap.and(followees, authors));
+        return Mono.fromCallable(() -> getFanoutOnReadAuthors(followees)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private RoaringBitmap fanoutOnReadAuthors() {
+        return fanoutReadAuthorsCache.get(FANOUT_READ_AUTHORS, key -> {
+            Set<Object> members = redisTemplate.opsForSet().members(key);
+            if (members == null || members.isEmpty())
+                return new RoaringBitmap();
+            return userIdInterner.toBitmap(members.stream().map(Object::toString).toList());
+        });
+    }
+
+    private boolean isFanoutOnReadAuthor(String authorId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember(FANOUT_READ_AUTHORS, authorId));
+    }
+}
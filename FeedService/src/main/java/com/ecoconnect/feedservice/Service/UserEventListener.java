@@ -1,106 +1,142 @@
 package com.ecoconnect.feedservice.Service;
 
 import com.ecoconnect.feedservice.Model.User;
-import com.ecoconnect.feedservice.Repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.stereotype.Component;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.util.*;
 
+/**
+ * Consumes user-notifications a poll at a time, split into key-ordered lanes by user. Follow changes are applied with atomic
+ * $addToSet/$pull updates in one ordered bulk write (no read-modify-write of the user document),
+ * followed by one rebuild of the affected followee bitmaps. Events that keep failing are moved to retry
+ * topics by EventRetryProcessor; offsets are committed only after the batch is durable or handed off.
+ */
 @Service
 public class UserEventListener {
 
-    private final RedisTemplate<String, Object> redisTemplate;
-    private final UserRepository userRepository;
-    private final ObjectMapper objectMapper;
+    static final String TOPIC = "user-notifications";
+
+    private final MongoTemplate mongoTemplate;
+    private final TimelineService timelineService;
+    private final AuthorProfileCache authorProfileCache;
+    private final FollowGraph followGraph;
+    private final EventRetryProcessor eventRetryProcessor;
 
     @Autowired
-    public UserEventListener(RedisTemplate<String, Object> redisTemplate, UserRepository userRepository, ObjectMapper objectMapper) {
-        this.redisTemplate = redisTemplate;
-        this.userRepository = userRepository;
-        this.objectMapper = objectMapper;
+    public UserEventListener(MongoTemplate mongoTemplate, TimelineService timelineService, AuthorProfileCache authorProfileCache, FollowGraph followGraph, EventRetryProcessor eventRetryProcessor) {
+        this.mongoTemplate = mongoTemplate;
+        this.timelineService = timelineService;
+        this.authorProfileCache = authorProfileCache;
+        this.followGraph = followGraph;
+        this.eventRetryProcessor = eventRetryProcessor;
+
+        // Keyed by the user document each event writes (the follower for follow changes), as the publisher keys them
+        eventRetryProcessor.register(TOPIC, UserEventListener::userKey, this::applyEvents);
     }
 
     // Kafka Listener for "user-notifications" topic
-    @KafkaListener(topics = "user-notifications", groupId = "feed-service-group")
-    public void listenToUserEvents(String message) {
-        try {
-            JsonNode event = objectMapper.readTree(message);
-            String messageType = event.get("messageType").asText();
+    @KafkaListener(topics = TOPIC, groupId = "feed-service-group", containerFactory = "batchListenerContainerFactory")
+    public void listenToUserEvents(List<ConsumerRecord<String, String>> records) {
+        eventRetryProcessor.process(TOPIC, records);
+    }
 
+    private void applyEvents(List<JsonNode> events) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, User.class);
+        List<JsonNode> followEvents = new ArrayList<>();
+        Map<String, String> authorNames = new LinkedHashMap<>();
+        int writes = 0;
+
+        for (JsonNode event : events) {
+            String messageType = event.get("messageType").asText();
             switch (messageType) {
                 case "USER_FOLLOWED":
-                    handleFollowEvent(event);
+                    handleFollowEvent(bulk, event);
+                    followEvents.add(event);
+                    writes++;
                     break;
                 case "USER_UNFOLLOWED":
-                    handleUnfollowEvent(event);
+                    handleUnfollowEvent(bulk, event);
+                    followEvents.add(event);
+                    writes++;
                     break;
                 case "USER_CREATED":
-                    handleUserCreatedEvent(event);
+                case "USER_UPDATED":
+                    handleProfileEvent(bulk, event, authorNames);
+                    writes++;
                     break;
                 default:
                     System.out.println("Unknown message type: " + messageType);
             }
-        } catch (Exception e) {
-            System.err.println("Error processing Kafka message: " + e.getMessage());
         }
+
+        if (writes == 0)
+            return;
+        bulk.execute();
+        authorProfileCache.update(authorNames);
+        updateRedis(followEvents);
     }
 
-    // Handle USER_FOLLOWED event
-    private void handleFollowEvent(JsonNode event) {
+    // Handle USER_FOLLOWED event; creates the follower document if it does not exist yet
+    private void handleFollowEvent(BulkOperations bulk, JsonNode event) {
         String followerId = event.get("followerId").asText();
         String followeeId = event.get("followeeId").asText();
 
-        // Ensure follower exists in MongoDB
-        User follower = userRepository.findById(followerId).orElseGet(() -> {
-            User newUser = new User(followerId);
-            return userRepository.save(newUser);
-        });
-
-        // Update MongoDB
-        follower.getFollowing().add(followeeId);
-        userRepository.save(follower);
-
-        // Update Redis
-        redisTemplate.opsForSet().add("followees:" + followerId, followeeId);
-
-        System.out.println("User " + followerId + " followed " + followeeId);
+        bulk.upsert(byId(followerId), new Update().addToSet("following", followeeId));
     }
 
     // Handle USER_UNFOLLOWED event
-    private void handleUnfollowEvent(JsonNode event) {
+    private void handleUnfollowEvent(BulkOperations bulk, JsonNode event) {
         String followerId = event.get("followerId").asText();
         String followeeId = event.get("followeeId").asText();
 
-        Optional<User> followerOpt = userRepository.findById(followerId);
-
-        if (followerOpt.isPresent()) {
-            User follower = followerOpt.get();
-            follower.getFollowing().remove(followeeId);
-            userRepository.save(follower);
-
-            // Update Redis
-            redisTemplate.opsForSet().remove("followees:" + followerId, followeeId);
-
-            System.out.println("User " + followerId + " unfollowed " + followeeId);
-        }
+        bulk.updateOne(byId(followerId), new Update().pull("following", followeeId));
     }
 
-    private void handleUserCreatedEvent(JsonNode event){
+    // Handle USER_CREATED and USER_UPDATED; the user may already exist from an earlier follow event
+    private void handleProfileEvent(BulkOperations bulk, JsonNode event, Map<String, String> authorNames) {
         String userid = event.get("userId").asText();
         String username = event.get("userName").asText();
 
-        if(userRepository.findById(userid).isPresent())
+        bulk.upsert(byId(userid), new Update().set("userName", username));
+        authorNames.put(userid, username);
+    }
+
+    // Rebuild the affected followee bitmaps from the documents just written, one Mongo read for the batch
+    private void updateRedis(List<JsonNode> followEvents) {
+        if (followEvents.isEmpty())
             return;
 
-        User user = new User(userid);
-        user.setUserName(username);
+        Set<String> followerIds = new LinkedHashSet<>();
+        followEvents.forEach(event -> followerIds.add(event.get("followerId").asText()));
+        followGraph.refresh(followerIds);
+
+        for (JsonNode event : followEvents) {
+            String followerId = event.get("followerId").asText();
+            String followeeId = event.get("followeeId").asText();
+            if ("USER_FOLLOWED".equals(event.get("messageType").asText())) {
+                timelineService.onFollow(followerId, followeeId);
+                System.out.println("User " + followerId + " followed " + followeeId);
+            } else {
+                timelineService.onUnfollow(followerId, followeeId);
+                System.out.println("User " + followerId + " unfollowed " + followeeId);
+            }
+        }
+    }
+
+    private static String userKey(JsonNode event) {
+        return event.has("followerId") ? event.get("followerId").asText() : event.path("userId").asText();
+    }
 
-        userRepository.save(user);
+    private static Query byId(String userId) {
+        return Query.query(Criteria.where("_id").is(userId));
     }
 }
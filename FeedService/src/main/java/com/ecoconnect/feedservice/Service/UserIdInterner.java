@@ -0,0 +1,126 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.*;
+
+/**
+ * Maps user ObjectIds to dense ints so follow sets can be held as compressed bitmaps.
+ * The mapping lives in two Redis hashes ("user_ids" and "user_ids_by_int") and is assigned
+ * atomically by the intern_user_ids script, so every instance sees the same ints. A mapping
+ * never changes once assigned, so both directions are cached in process without expiry.
+ */
+@Component
+public class UserIdInterner {
+
+    static final String IDS_KEY = "user_ids";
+    static final String OBJECT_IDS_KEY = "user_ids_by_int";
+    static final String SEQUENCE_KEY = "user_id_seq";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> INTERN_USER_IDS =
+            RedisScript.of(new ClassPathResource("scripts/intern_user_ids.lua"), List.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Cache<String, Integer> ids;
+    private final Cache<Integer, String> objectIds;
+
+    @Autowired
+    public UserIdInterner(RedisTemplate<String, Object> redisTemplate,
+                          @Value("${feed.user-ids.cache-size:1000000}") long cacheSize) {
+        this.redisTemplate = redisTemplate;
+        this.ids = Caffeine.newBuilder().maximumSize(cacheSize).build();
+        this.objectIds = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    public int intern(String objectId) {
+        return internAll(List.of(objectId)).get(objectId);
+    }
+
+    // objectId -> int, assigning ints to IDs seen for the first time
+    @SuppressWarnings("unchecked")
+    public Map<String, Integer> internAll(Collection<String> userIds) {
+        Set<String> unique = new HashSet<>(userIds);
+        Map<String, Integer> interned = new HashMap<>(ids.getAllPresent(unique));
+        if (interned.size() == unique.size())
+            return interned;
+
+        List<String> missing = unique.stream().filter(id -> !interned.containsKey(id)).toList();
+        List<Object> assigned = redisTemplate.execute(INTERN_USER_IDS, List.of(IDS_KEY, OBJECT_IDS_KEY, SEQUENCE_KEY), missing.toArray());
+        for (int i = 0; i < missing.size(); i++) {
+            int id = ((Number) assigned.get(i)).intValue();
+            interned.put(missing.get(i), id);
+            ids.put(missing.get(i), id);
+            objectIds.put(id, missing.get(i));
+        }
+        return interned;
+    }
+
+    // Served from memory when every ID is cached, otherwise interned off the event loop
+    public Mono<Map<String, Integer>> internAllReactive(Collection<String> userIds) {
+        Set<String> unique = new HashSet<>(userIds);
+        Map<String, Integer> cached = ids.getAllPresent(unique);
+        if (cached.size() == unique.size())
+            return Mono.just(cached);
+        return Mono.fromCallable(() -> internAll(unique)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public RoaringBitmap toBitmap(Collection<String> userIds) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        if (!userIds.isEmpty())
+            internAll(userIds).values().forEach(bitmap::add);
+        bitmap.runOptimize();
+        return bitmap;
+    }
+
+    // ObjectIds of the users in the bitmap; ints without a mapping are dropped
+    public List<String> toObjectIds(RoaringBitmap bitmap) {
+        List<String> resolved = new ArrayList<>(bitmap.getCardinality());
+        List<Integer> missing = new ArrayList<>();
+        bitmap.forEach((int id) -> {
+            String objectId = objectIds.getIfPresent(id);
+            if (objectId != null)
+                resolved.add(objectId);
+            else
+                missing.add(id);
+        });
+        if (missing.isEmpty())
+            return resolved;
+
+        List<Object> fields = missing.stream().map(id -> (Object) String.valueOf(id)).toList();
+        List<Object> loaded = redisTemplate.opsForHash().multiGet(OBJECT_IDS_KEY, fields);
+        for (int i = 0; i < missing.size(); i++) {
+            Object objectId = loaded != null ? loaded.get(i) : null;
+            if (objectId == null)
+                continue;
+            resolved.add(objectId.toString());
+            objectIds.put(missing.get(i), objectId.toString());
+            ids.put(objectId.toString(), missing.get(i));
+        }
+        return resolved;
+    }
+
+    // Served from memory when every int is cached, otherwise resolved off the event loop
+    public Mono<List<String>> toObjectIdsReactive(RoaringBitmap bitmap) {
+        boolean allCached = true;
+        for (int id : bitmap) {
+            if (objectIds.getIfPresent(id) == null) {
+                allCached = false;
+                break;
+            }
+        }
+        if (allCached)
+            return Mono.just(toObjectIds(bitmap));
+        return Mono.fromCallable(() -> toObjectIds(bitmap)).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,43 @@
+-- Finds what's new for a polling client: entries strictly newer than its cursor across feed sorted sets.
+-- KEYS:    the sorted sets to check
+-- ARGV[1]: cursor score, ARGV[2]: cursor postId
+-- ARGV[3]: maximum number of entries returned
+-- Returns the oldest entries after the cursor, so a client that polls again from the newest of them
+-- misses nothing, ordered by (score, member) ascending, as a flat member/score list; empty when
+-- nothing changed
+local sinceScore, sinceId, count = tonumber(ARGV[1]), ARGV[2], tonumber(ARGV[3])
+
+local candidates, seen = {}, {}
+for _, key in ipairs(KEYS) do
+    -- Oldest first; members at the cursor's own score come first and are skipped without using up the count
+    local offset, taken = 0, 0
+    while taken < count do
+        local page = redis.call('ZRANGEBYSCORE', key, sinceScore, '+inf', 'WITHSCORES', 'LIMIT', offset, count)
+        for i = 1, #page, 2 do
+            local member, score = page[i], tonumber(page[i + 1])
+            if (score > sinceScore or member > sinceId) and not seen[member] then
+                seen[member] = true
+                candidates[#candidates + 1] = { member, score }
+                taken = taken + 1
+            end
+        end
+        if #page < 2 * count then
+            break
+        end
+        offset = offset + count
+    end
+end
+
+table.sort(candidates, function(a, b)
+    if a[2] ~= b[2] then
+        return a[2] < b[2]
+    end
+    return a[1] < b[1]
+end)
+
+local result = {}
+for i = 1, math.min(count, #candidates) do
+    result[#result + 1] = candidates[i][1]
+    result[#result + 1] = string.format('%.17g', candidates[i][2])
+end
+return result
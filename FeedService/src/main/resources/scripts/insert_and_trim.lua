@@ -0,0 +1,27 @@
+-- Inserts posts into feed sorted sets and trims each one to a fixed size, atomically.
+-- KEYS:    the sorted sets (recent_posts:* or timeline:*)
+-- ARGV[1]: maximum number of members kept per set (the newest ones)
+-- ARGV[2]: TTL in seconds set on every written key, 0 to leave TTLs alone
+-- ARGV[3]: '1' to skip keys that don't exist (fan-out only feeds timelines that are in use)
+-- ARGV[4..]: for each key in order, a count n followed by n score/member pairs
+local maxSize, ttl, existingOnly = tonumber(ARGV[1]), tonumber(ARGV[2]), ARGV[3] == '1'
+local pos = 4
+local written = 0
+for _, key in ipairs(KEYS) do
+    local n = tonumber(ARGV[pos])
+    pos = pos + 1
+    if existingOnly and redis.call('EXISTS', key) == 0 then
+        pos = pos + 2 * n
+    else
+        for _ = 1, n do
+            redis.call('ZADD', key, ARGV[pos], ARGV[pos + 1])
+            pos = pos + 2
+        end
+        redis.call('ZREMRANGEBYRANK', key, 0, -(maxSize + 1))
+        if ttl > 0 then
+            redis.call('EXPIRE', key, ttl)
+        end
+        written = written + 1
+    end
+end
+return written
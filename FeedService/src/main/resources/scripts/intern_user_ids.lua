@@ -0,0 +1,15 @@
+-- Maps user ObjectIds to dense ints, assigning the next free int to IDs not seen before.
+-- KEYS[1]: objectId -> int hash, KEYS[2]: int -> objectId hash, KEYS[3]: last assigned int
+-- ARGV:    the ObjectIds
+-- Returns their ints, in ARGV order
+local ids = {}
+for i = 1, #ARGV do
+    local id = redis.call('HGET', KEYS[1], ARGV[i])
+    if not id then
+        id = redis.call('INCR', KEYS[3])
+        redis.call('HSET', KEYS[1], ARGV[i], id)
+        redis.call('HSET', KEYS[2], id, ARGV[i])
+    end
+    ids[i] = tonumber(id)
+end
+return ids
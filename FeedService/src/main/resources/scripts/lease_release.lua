@@ -0,0 +1,7 @@
+-- Gives up a lease, but only for the instance holding it.
+-- KEYS[1]: the lease, ARGV[1]: the holder's id
+-- Returns 1 if the lease was deleted
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,7 @@
+-- Extends a lease, but only for the instance holding it.
+-- KEYS[1]: the lease, ARGV[1]: the holder's id, ARGV[2]: new lifetime in milliseconds
+-- Returns 1 if the lease was still held by ARGV[1]
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+end
+return 0
@@ -0,0 +1,10 @@
+-- Reads the newest members of many feed sorted sets in one call.
+-- KEYS:    the sorted sets to read
+-- ARGV[1]: maximum score, inclusive ('+inf' for the first page)
+-- ARGV[2]: offset into each set, ARGV[3]: members per set
+-- Returns one flat member/score list per key, highest score first
+local result = {}
+for i, key in ipairs(KEYS) do
+    result[i] = redis.call('ZREVRANGEBYSCORE', key, ARGV[1], '-inf', 'WITHSCORES', 'LIMIT', ARGV[2], ARGV[3])
+end
+return result
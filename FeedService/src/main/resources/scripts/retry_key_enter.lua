@@ -0,0 +1,8 @@
+-- Counts one more event of a key in the retry tiers and tells which tier it must be sent to.
+-- KEYS[1]: key -> number of its events in the tiers, KEYS[2]: key -> tier its oldest event waits in
+-- ARGV[1]: the key, ARGV[2]: the tier the event would go to if the key had none in the tiers yet
+-- Returns the tier of the key's oldest event, so the new one is queued behind it
+if redis.call('HINCRBY', KEYS[1], ARGV[1], 1) == 1 then
+    redis.call('HSET', KEYS[2], ARGV[1], ARGV[2])
+end
+return tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or ARGV[2])
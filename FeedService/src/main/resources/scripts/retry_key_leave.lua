@@ -0,0 +1,10 @@
+-- Counts one event of a key out of the retry tiers (applied or dead-lettered).
+-- KEYS[1]: key -> number of its events in the tiers, KEYS[2]: key -> tier its oldest event waits in
+-- ARGV[1]: the key
+-- Returns how many events of the key are still in the tiers; the key is forgotten at zero
+local left = redis.call('HINCRBY', KEYS[1], ARGV[1], -1)
+if left <= 0 then
+    redis.call('HDEL', KEYS[1], ARGV[1])
+    redis.call('HDEL', KEYS[2], ARGV[1])
+end
+return math.max(left, 0)
@@ -0,0 +1,30 @@
+-- Checks posts against a user's rotating Bloom filter of delivered posts, then marks them all as delivered.
+-- KEYS[1]: the current generation's bitmap, KEYS[2]: the previous generation's
+-- ARGV[1]: bits per post (k), ARGV[2]: TTL in seconds of the current generation
+-- ARGV[3..]: k bit offsets per post, in order
+-- Returns one flag per post: 1 if it was probably delivered before, 0 if certainly not
+local k, ttl = tonumber(ARGV[1]), tonumber(ARGV[2])
+local current, previous = KEYS[1], KEYS[2]
+
+local function contains(key, from)
+    for i = from, from + k - 1 do
+        if redis.call('GETBIT', key, ARGV[i]) == 0 then
+            return false
+        end
+    end
+    return true
+end
+
+local seen = {}
+for from = 3, #ARGV, k do
+    if contains(current, from) or contains(previous, from) then
+        seen[#seen + 1] = 1
+    else
+        seen[#seen + 1] = 0
+    end
+    for i = from, from + k - 1 do
+        redis.call('SETBIT', current, ARGV[i], 1)
+    end
+end
+redis.call('EXPIRE', current, ttl)
+return seen
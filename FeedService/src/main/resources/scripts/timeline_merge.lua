@@ -0,0 +1,45 @@
+-- Merges a home timeline with a few fan-out-on-read authors' recent_posts on the server.
+-- KEYS:    the sorted sets to merge
+-- ARGV[1]: cursor score ('+inf' for the first page), ARGV[2]: cursor postId ('' for none)
+-- ARGV[3]: page size
+-- Returns the newest page-size members strictly after the cursor, ordered by (score, member)
+-- descending, as a flat member/score list
+local maxScore, afterId, count = ARGV[1], ARGV[2], tonumber(ARGV[3])
+local cursorScore = math.huge
+if maxScore ~= '+inf' then
+    cursorScore = tonumber(maxScore)
+end
+
+local candidates, seen = {}, {}
+for _, key in ipairs(KEYS) do
+    local offset, taken = 0, 0
+    while taken < count do
+        local page = redis.call('ZREVRANGEBYSCORE', key, maxScore, '-inf', 'WITHSCORES', 'LIMIT', offset, count)
+        for i = 1, #page, 2 do
+            local member, score = page[i], tonumber(page[i + 1])
+            if (score < cursorScore or (score == cursorScore and member < afterId)) and not seen[member] then
+                seen[member] = true
+                candidates[#candidates + 1] = { member, score }
+                taken = taken + 1
+            end
+        end
+        if #page < 2 * count then
+            break
+        end
+        offset = offset + count
+    end
+end
+
+table.sort(candidates, function(a, b)
+    if a[2] ~= b[2] then
+        return a[2] > b[2]
+    end
+    return a[1] > b[1]
+end)
+
+local result = {}
+for i = 1, math.min(count, #candidates) do
+    result[#result + 1] = candidates[i][1]
+    result[#result + 1] = string.format('%.17g', candidates[i][2])
+end
+return result
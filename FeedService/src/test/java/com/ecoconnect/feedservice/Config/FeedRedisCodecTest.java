@@ -0,0 +1,78 @@
+package com.ecoconnect.feedservice.Config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedRedisCodecTest {
+
+    private final FeedRedisCodec codec = new FeedRedisCodec(true);
+
+    @Test
+    void stringsAreRawUtf8() {
+        byte[] encoded = codec.serialize("Ünïcode ✓ 65f1c0ffee");
+
+        assertArrayEquals("Ünïcode ✓ 65f1c0ffee".getBytes(StandardCharsets.UTF_8), encoded);
+        assertEquals("Ünïcode ✓ 65f1c0ffee", codec.deserialize(encoded));
+    }
+
+    @Test
+    void numbersRoundTripAsLongs() {
+        for (long value : List.of(0L, 1L, -1L, 63L, -64L, 64L, 300L, -300L, 1_714_564_800_123L, Long.MAX_VALUE, Long.MIN_VALUE))
+            assertEquals(value, codec.deserialize(codec.serialize(value)), "value " + value);
+        assertEquals(7L, codec.deserialize(codec.serialize(7)));
+    }
+
+    @Test
+    void smallNumbersStayShort() {
+        assertEquals(3, codec.serialize(0L).length);
+        assertEquals(3, codec.serialize(-64L).length);
+        assertEquals(4, codec.serialize(64L).length);
+        assertEquals(12, codec.serialize(Long.MIN_VALUE).length);
+    }
+
+    @Test
+    void bytesRoundTripAndAreTagged() {
+        byte[] bitmap = {0, 1, (byte) 0xAC, (byte) 0xED, (byte) 0xFF};
+        byte[] encoded = codec.serialize(bitmap);
+
+        assertEquals((byte) 0xFF, encoded[0]);
+        assertArrayEquals(bitmap, (byte[]) codec.deserialize(encoded));
+        assertArrayEquals(new byte[0], (byte[]) codec.deserialize(codec.serialize(new byte[0])));
+    }
+
+    @Test
+    void nullIsEmpty() {
+        assertArrayEquals(new byte[0], codec.serialize(null));
+        assertNull(codec.deserialize(new byte[0]));
+        assertNull(codec.deserialize(null));
+    }
+
+    @Test
+    void legacyValuesAreReadWhenEnabled() {
+        byte[] legacy = new JdkSerializationRedisSerializer().serialize("old value");
+
+        assertTrue(FeedRedisCodec.isLegacy(legacy));
+        assertEquals("old value", codec.deserialize(legacy));
+        assertThrows(SerializationException.class, () -> new FeedRedisCodec(false).deserialize(legacy));
+    }
+
+    @Test
+    void newValuesAreNeverTakenForLegacy() {
+        assertFalse(FeedRedisCodec.isLegacy(codec.serialize("¬í")));
+        assertFalse(FeedRedisCodec.isLegacy(codec.serialize(-21L)));
+        assertFalse(FeedRedisCodec.isLegacy(codec.serialize(new byte[]{(byte) 0xAC, (byte) 0xED})));
+        assertFalse(FeedRedisCodec.isLegacy(new byte[]{(byte) 0xAC}));
+    }
+
+    @Test
+    void rejectsUnknownTypes() {
+        assertThrows(SerializationException.class, () -> codec.serialize(1.5));
+        assertThrows(SerializationException.class, () -> codec.deserialize(new byte[]{(byte) 0xFF, 9, 1}));
+    }
+}
@@ -0,0 +1,73 @@
+package com.ecoconnect.feedservice.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedCursorTest {
+
+    @Test
+    void roundTripsScoreAndPostId() {
+        FeedCursor decoded = FeedCursor.decode(new FeedCursor(1714564800123L, "65f1c0ffee").encode());
+
+        assertEquals(1714564800123L, decoded.getScore());
+        assertEquals("65f1c0ffee", decoded.getPostId());
+    }
+
+    @Test
+    void postIdMayContainTheSeparator() {
+        FeedCursor decoded = FeedCursor.decode(new FeedCursor(42, "a:b").encode());
+
+        assertEquals(42, decoded.getScore());
+        assertEquals("a:b", decoded.getPostId());
+    }
+
+    @Test
+    void tokenIsUrlSafeWithoutPadding() {
+        assertTrue(new FeedCursor(1, "a?b/c+d").encode().matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> FeedCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> FeedCursor.decode(encode("no separator")));
+        assertThrows(IllegalArgumentException.class, () -> FeedCursor.decode(encode("soon:p1")));
+    }
+
+    @Test
+    void afterTakesTheEntry() {
+        FeedCursor cursor = FeedCursor.after(new FeedEntry("p1", 1000));
+
+        assertEquals(1000, cursor.getScore());
+        assertEquals("p1", cursor.getPostId());
+    }
+
+    @Test
+    void precedesFollowsFeedOrder() {
+        FeedCursor cursor = new FeedCursor(1000, "p5");
+
+        assertTrue(cursor.precedes(new FeedEntry("p9", 999)));
+        assertTrue(cursor.precedes(new FeedEntry("p4", 1000)));
+        assertFalse(cursor.precedes(new FeedEntry("p5", 1000)));
+        assertFalse(cursor.precedes(new FeedEntry("p6", 1000)));
+        assertFalse(cursor.precedes(new FeedEntry("p1", 1001)));
+    }
+
+    @Test
+    void olderThanExcludesEverythingAtThatTime() {
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 250_000_000);
+        FeedCursor cursor = FeedCursor.olderThan(time);
+
+        assertEquals(time, cursor.toDateTime());
+        assertFalse(cursor.precedes(new FeedEntry("p1", FeedEntry.scoreOf(time))));
+        assertTrue(cursor.precedes(new FeedEntry("p1", FeedEntry.scoreOf(time) - 1)));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,154 @@
+package com.ecoconnect.feedservice.Service;
+
+import com.ecoconnect.feedservice.Model.FeedCursor;
+import com.ecoconnect.feedservice.Model.FeedEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FeedMergerTest {
+
+    // Scores in the tests are millis after this; smaller raw scores would be read as v0 seconds
+    private static final long BASE = 1_700_000_000_000L;
+
+    // key -> member -> raw score, read the way multi_author_fetch.lua reads them
+    private final Map<String, Map<String, Double>> sets = new HashMap<>();
+    private FeedScripts feedScripts;
+    private FeedMerger merger;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        feedScripts = mock(FeedScripts.class);
+        when(feedScripts.fetch(anyList(), anyDouble(), anyLong(), anyInt())).thenAnswer(call ->
+                fetch(call.getArgument(0), call.getArgument(1), call.getArgument(2), call.getArgument(3)));
+        merger = new FeedMerger(feedScripts);
+    }
+
+    @Test
+    void mergesNewestFirstUpToLimit() {
+        add("recent_posts:a", "a1", 100, "a2", 300, "a3", 500);
+        add("recent_posts:b", "b1", 200, "b2", 400);
+
+        assertEquals(List.of("a3", "b2", "a2", "b1"), ids(merger.merge(List.of("recent_posts:a", "recent_posts:b"), 4, null)));
+    }
+
+    @Test
+    void equalScoresAreOrderedByPostIdDescending() {
+        add("recent_posts:a", "p1", 100, "p3", 100);
+        add("recent_posts:b", "p2", 100, "p4", 90);
+
+        assertEquals(List.of("p3", "p2", "p1", "p4"), ids(merger.merge(List.of("recent_posts:a", "recent_posts:b"), 10, null)));
+    }
+
+    @Test
+    void postInSeveralKeysIsReturnedOnce() {
+        add("timeline:u", "p1", 100, "p2", 200);
+        add("recent_posts:a", "p2", 200, "p3", 300);
+
+        assertEquals(List.of("p3", "p2", "p1"), ids(merger.merge(List.of("timeline:u", "recent_posts:a"), 10, null)));
+    }
+
+    @Test
+    void cursorResumesStrictlyAfterTheLastEntry() {
+        add("recent_posts:a", "p1", 100, "p2", 100, "p3", 100, "p4", 50);
+
+        List<FeedEntry> page = merger.merge(List.of("recent_posts:a"), 10, new FeedCursor(BASE + 100, "p2"));
+        assertEquals(List.of("p1", "p4"), ids(page));
+    }
+
+    @Test
+    void legacySecondScoresInterleaveWithMillis() {
+        sets.put("recent_posts:old", Map.of("old", 1_700_000_000.0));
+        add("recent_posts:new", "before", -1000, "after", 1000);
+
+        List<FeedEntry> page = merger.merge(List.of("recent_posts:old", "recent_posts:new"), 10, null);
+        assertEquals(List.of("after", "old", "before"), ids(page));
+        assertEquals(1_700_000_000_000L, page.get(1).getScore());
+    }
+
+    @Test
+    void pagingThroughEverythingMissesAndRepeatsNothing() {
+        // Skewed sizes force refills, and coarse scores give many ties, also across keys
+        Random random = new Random(7);
+        List<String> keys = new ArrayList<>();
+        Map<String, Long> expected = new HashMap<>();
+        for (int k = 0; k < 12; k++) {
+            String key = "recent_posts:" + k;
+            keys.add(key);
+            int size = k == 0 ? 400 : random.nextInt(30);
+            for (int i = 0; i < size; i++) {
+                String postId = "p" + random.nextInt(1500);
+                long score = expected.computeIfAbsent(postId, id -> BASE + random.nextInt(60) * 1000L);
+                sets.computeIfAbsent(key, x -> new HashMap<>()).put(postId, (double) score);
+            }
+        }
+        List<String> all = expected.entrySet().stream()
+                .map(e -> new FeedEntry(e.getKey(), e.getValue()))
+                .sorted(FeedEntry.NEWEST_FIRST).map(FeedEntry::getPostId).toList();
+
+        for (int limit : new int[]{1, 7, 50}) {
+            List<String> paged = new ArrayList<>();
+            FeedCursor cursor = null;
+            while (true) {
+                List<FeedEntry> page = merger.merge(keys, limit, cursor);
+                assertTrue(page.size() <= limit);
+                paged.addAll(ids(page));
+                if (page.size() < limit)
+                    break;
+                cursor = FeedCursor.after(page.get(page.size() - 1));
+            }
+            assertEquals(all, paged, "limit " + limit);
+        }
+    }
+
+    @Test
+    void firstChunksOfAllKeysAreFetchedTogether() {
+        add("recent_posts:a", "a1", 100);
+        add("recent_posts:b", "b1", 200);
+
+        merger.merge(List.of("recent_posts:a", "recent_posts:b"), 1, null);
+        verify(feedScripts).fetch(eq(List.of("recent_posts:a", "recent_posts:b")), eq(Double.POSITIVE_INFINITY), eq(0L), anyInt());
+        verifyNoMoreInteractions(feedScripts);
+    }
+
+    @Test
+    void nothingToMerge() {
+        assertTrue(merger.merge(List.of(), 10, null).isEmpty());
+        assertTrue(merger.merge(List.of("recent_posts:a"), 0, null).isEmpty());
+        assertTrue(merger.merge(List.of("recent_posts:missing"), 10, null).isEmpty());
+    }
+
+    private void add(String key, Object... memberScores) {
+        Map<String, Double> set = sets.computeIfAbsent(key, k -> new HashMap<>());
+        for (int i = 0; i < memberScores.length; i += 2)
+            set.put((String) memberScores[i], (double) (BASE + ((Number) memberScores[i + 1]).longValue()));
+    }
+
+    // ZREVRANGEBYSCORE key maxScore -inf WITHSCORES LIMIT offset count, for each key
+    private List<List<Object>> fetch(List<String> keys, double maxScore, long offset, int count) {
+        List<List<Object>> result = new ArrayList<>();
+        for (String key : keys) {
+            List<Object> flat = new ArrayList<>();
+            sets.getOrDefault(key, Map.of()).entrySet().stream()
+                    .filter(member -> member.getValue() <= maxScore)
+                    .sorted(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()).reversed())
+                    .skip(offset).limit(count)
+                    .forEach(member -> {
+                        flat.add(member.getKey());
+                        flat.add(String.valueOf(member.getValue()));
+                    });
+            result.add(flat);
+        }
+        return result;
+    }
+
+    private static List<String> ids(List<FeedEntry> entries) {
+        return entries.stream().map(FeedEntry::getPostId).toList();
+    }
+}
@@ -22,6 +22,8 @@ public class GatewayCorsConfig {
         config.setAllowedOrigins(List.of("http://localhost:5173", "https://app.econnectservices.tech/"));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.addAllowedHeader("*");
+        config.addExposedHeader("X-Next-Cursor");
+        config.addExposedHeader("ETag");
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
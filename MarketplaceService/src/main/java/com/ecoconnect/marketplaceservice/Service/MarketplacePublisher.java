@@ -26,13 +26,14 @@ public class MarketplacePublisher {
         message.put("sellerId", sellerId);
         message.put("name", name);
 
-        sendMessage("marketplace-notifications", message);
+        sendMessage("marketplace-notifications", productId, message);
     }
 
-    private void sendMessage(String topic, Map<String, Object> message) {
+    // The key (the product) picks the partition, so messages about one product stay in order
+    private void sendMessage(String topic, String key, Map<String, Object> message) {
         try {
             String jsonMessage = objectMapper.writeValueAsString(message);
-            kafkaTemplate.send(topic, jsonMessage);
+            kafkaTemplate.send(topic, key, jsonMessage);
         } catch (Exception e) {
             throw new RuntimeException("Error serializing Kafka message", e);
         }
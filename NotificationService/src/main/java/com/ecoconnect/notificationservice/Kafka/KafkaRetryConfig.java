@@ -0,0 +1,47 @@
+package com.ecoconnect.notificationservice.Kafka;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+
+import java.util.List;
+
+@Configuration
+public class KafkaRetryConfig {
+
+    @Value("${notification.kafka.retry.attempts:4}")
+    private int attempts;
+
+    @Value("${notification.kafka.retry.initial-delay-ms:1000}")
+    private long initialDelayMs;
+
+    @Value("${notification.kafka.retry.multiplier:5}")
+    private double multiplier;
+
+    @Value("${notification.kafka.retry.max-delay-ms:60000}")
+    private long maxDelayMs;
+
+    // Other services consume the same topics with retry topics of their own, so ours carry the service name
+    public static final String RETRY_SUFFIX = ".notification-service-retry";
+    public static final String DLT_SUFFIX = ".notification-service-dlt";
+
+    // Failed records move to {topic}.notification-service-retry-0..n with exponential delays and end up in
+    // {topic}.notification-service-dlt, so a slow or failing notification never holds up the rest of its partition
+    @Bean
+    public RetryTopicConfiguration notificationRetryTopics(KafkaTemplate<String, String> kafkaTemplate) {
+        return RetryTopicConfigurationBuilder.newInstance()
+                .includeTopics(List.of("user-notifications", "event-notifications", "marketplace-notifications"))
+                .maxAttempts(attempts)
+                .exponentialBackoff(initialDelayMs, multiplier, maxDelayMs)
+                .retryTopicSuffix(RETRY_SUFFIX)
+                .dltSuffix(DLT_SUFFIX)
+                .suffixTopicsWithIndexValues()
+                .notRetryOn(JsonProcessingException.class)
+                .dltHandlerMethod("notificationListener", "handleDeadLetter")
+                .create(kafkaTemplate);
+    }
+}
@@ -1,12 +1,18 @@
 package com.ecoconnect.notificationservice.Service;
 
+import com.ecoconnect.notificationservice.Kafka.KafkaRetryConfig;
 import com.ecoconnect.notificationservice.Model.User;
 import com.ecoconnect.notificationservice.Model.UserPreference;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
@@ -19,44 +25,46 @@ public class NotificationListener {
     private final ObjectMapper objectMapper;
     private final UserService userService;
     private final UserPreferenceService userPreferenceService;
+    private final MeterRegistry meterRegistry;
+    private final SentNotifications sentNotifications;
 
     @Autowired
-    public NotificationListener(EmailService emailService, UserService userService, UserPreferenceService userPreferenceService) {
+    public NotificationListener(EmailService emailService, UserService userService, UserPreferenceService userPreferenceService, MeterRegistry meterRegistry, SentNotifications sentNotifications) {
         this.emailService = emailService;
+        this.sentNotifications = sentNotifications;
         this.userService = userService;
         this.userPreferenceService = userPreferenceService;
+        this.meterRegistry = meterRegistry;
         this.objectMapper = new ObjectMapper();
     }
 
+    // Failures propagate so the record is retried on the retry topics (see KafkaRetryConfig)
     @KafkaListener(topics = "user-notifications", groupId = "notification-group")
-    public void handleUserEvents(String message) {
-        try {
-            JsonNode json = objectMapper.readTree(message);
-            String messageType = json.get("messageType").asText();
+    public void handleUserEvents(String message, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) throws JsonProcessingException {
+        countRetry(topic);
+        JsonNode json = objectMapper.readTree(message);
+        String messageType = json.get("messageType").asText();
 
-            if(messageType.equals("USER_CREATED"))
-                    return;
+        if(messageType.equals("USER_CREATED") || messageType.equals("USER_UPDATED"))
+                return;
 
-            String followerId = json.get("followerId").asText();
-            String followeeId = json.get("followeeId").asText();
+        String followerId = json.get("followerId").asText();
+        String followeeId = json.get("followeeId").asText();
 
-            log.info("Received message from user-notifications");
+        log.info("Received message from user-notifications");
 
-            if ("USER_FOLLOWED".equals(messageType)) {
-                String followerEmail = json.get("followerEmail").asText();
-                String followeeEmail = json.get("followeeEmail").asText();
-                userService.addFollower(followeeId, followerId, followerEmail,followeeEmail );
-            } else if ("USER_UNFOLLOWED".equals(messageType)) {
-                userService.removeFollower(followeeId, followerId);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            log.error("Encountered error in handling user events");
+        if ("USER_FOLLOWED".equals(messageType)) {
+            String followerEmail = json.get("followerEmail").asText();
+            String followeeEmail = json.get("followeeEmail").asText();
+            userService.addFollower(followeeId, followerId, followerEmail,followeeEmail );
+        } else if ("USER_UNFOLLOWED".equals(messageType)) {
+            userService.removeFollower(followeeId, followerId);
         }
     }
 
     @KafkaListener(topics = "event-notifications", groupId = "notification-group")
-    public void handleEventNotifications(String message) {
+    public void handleEventNotifications(String message, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) {
+        countRetry(topic);
         JsonNode json = parseMessage(message);
         if (json == null) return;
 
@@ -73,7 +81,8 @@ public class NotificationListener {
     }
 
     @KafkaListener(topics = "marketplace-notifications", groupId = "notification-group")
-    public void handleProductNotifications(String message){
+    public void handleProductNotifications(String message, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic){
+        countRetry(topic);
         JsonNode json = parseMessage(message);
         if(json == null) return;
 
@@ -85,7 +94,9 @@ public class NotificationListener {
         }
     }
 
+    // A retry after a failed email skips the followers who already got theirs
     private void handleEventCreated(JsonNode json) {
+        String notificationId = "EVENT_CREATED:" + json.get("eventId").asText();
         String creatorId = json.get("creatorId").asText();
         String eventName = json.get("eventName").asText();
 
@@ -97,6 +108,7 @@ public class NotificationListener {
 
         for (Map.Entry<String, String> entry : followers.entrySet()) {
             String followerId = entry.getKey();  // Assuming key is the follower's ID
+            if (sentNotifications.wasSent(notificationId, followerId)) continue;
             User follower = userService.getUser(followerId);
             if (follower == null) continue;
 
@@ -106,6 +118,7 @@ public class NotificationListener {
             if (pref.isReceiveEventNotifications()) {
                 emailService.sendEmail(follower.getEmail(), "New Event Created",
                         "Check out the event: " + eventName + " created by " + creator.getEmail());
+                sentNotifications.markSent(notificationId, followerId);
             }
         }
     }
@@ -120,7 +133,9 @@ public class NotificationListener {
         emailService.sendEmail(participantEmail, " RSVP'd to Event"+ eventName, "Thank you for registering to "+eventName);
     }
 
+    // A retry after a failed email skips the followers who already got theirs
     private void handleProductCreated(JsonNode json) {
+        String notificationId = "PRODUCT_CREATED:" + json.get("productId").asText();
         String sellerId = json.get("sellerId").asText();
         String productName = json.get("name").asText();
 
@@ -136,16 +151,31 @@ public class NotificationListener {
         for (Map.Entry<String, String> entry : followers.entrySet()) {
             String followerId = entry.getKey();
             String followerEmail = entry.getValue();
+            if (sentNotifications.wasSent(notificationId, followerId)) continue;
 
             // Check user preferences before sending email
             UserPreference pref = userPreferenceService.getUserPreferences(followerId);
             if (followerEmail != null && pref.isReceiveProductNotifications()) {
                 emailService.sendEmail(followerEmail, "New Product Added",
                         "Check out the new product: " + productName + " listed by " + seller.getEmail());
+                sentNotifications.markSent(notificationId, followerId);
             }
         }
     }
 
+    // Records that failed every retry; counted and logged, they stay in the dead-letter topic for inspection
+    public void handleDeadLetter(String message, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) {
+        String listener = topic.substring(0, topic.length() - KafkaRetryConfig.DLT_SUFFIX.length());
+        Counter.builder("notification.kafka.dead-letters").tag("listener", listener).register(meterRegistry).increment();
+        log.error("Dead-lettered message from " + listener + ": " + message);
+    }
+
+    private void countRetry(String topic) {
+        int retry = topic.lastIndexOf(KafkaRetryConfig.RETRY_SUFFIX);
+        if (retry >= 0)
+            Counter.builder("notification.kafka.retries").tag("listener", topic.substring(0, retry)).register(meterRegistry).increment();
+    }
+
     private JsonNode parseMessage(String message) {
         try {
             return objectMapper.readTree(message);
@@ -0,0 +1,29 @@
+package com.ecoconnect.notificationservice.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+// Recipients already emailed about a notification, so a retried fan-out only emails the ones it missed
+@Service
+public class SentNotifications {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    public SentNotifications(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public boolean wasSent(String notificationId, String recipientId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForSet().isMember("notified:" + notificationId, recipientId));
+    }
+
+    // Kept for a day, well beyond the last retry (see KafkaRetryConfig)
+    public void markSent(String notificationId, String recipientId) {
+        redisTemplate.opsForSet().add("notified:" + notificationId, recipientId);
+        redisTemplate.expire("notified:" + notificationId, 1, TimeUnit.DAYS);
+    }
+}
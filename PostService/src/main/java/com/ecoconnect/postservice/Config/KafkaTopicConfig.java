@@ -0,0 +1,18 @@
+package com.ecoconnect.postservice.Config;
+
+import com.ecoconnect.postservice.Service.EngagementCounters;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    // Compacted, so the topic keeps the latest counts of every post and consumers can rebuild from it
+    @Bean
+    public NewTopic postEngagementTopic(@Value("${posts.engagement.partitions:6}") int partitions) {
+        return TopicBuilder.name(EngagementCounters.TOPIC).partitions(partitions).compact().build();
+    }
+}
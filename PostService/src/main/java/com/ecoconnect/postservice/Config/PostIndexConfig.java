@@ -0,0 +1,49 @@
+package com.ecoconnect.postservice.Config;
+
+import com.ecoconnect.postservice.Model.Post;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indexes for keyset pages of posts, newest first: (createdDate, _id) for all posts and
+ * (authorId, createdDate, _id) for one author's. They are ensured in the background after startup,
+ * so a large Posts collection or an unreachable database doesn't hold up the application context.
+ */
+@Component
+@Slf4j
+public class PostIndexConfig implements ApplicationRunner {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public PostIndexConfig(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread creator = new Thread(this::ensureIndexes, "post-indexes");
+        creator.setDaemon(true);
+        creator.start();
+    }
+
+    public void ensureIndexes() {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(Post.class);
+            indexOps.ensureIndex(new Index().named("created_id")
+                    .on("createdDate", Sort.Direction.DESC).on("_id", Sort.Direction.DESC));
+            indexOps.ensureIndex(new Index().named("author_created_id")
+                    .on("authorId", Sort.Direction.ASC).on("createdDate", Sort.Direction.DESC).on("_id", Sort.Direction.DESC));
+            log.info("Post pagination indexes are in place");
+        } catch (Exception e) {
+            log.error("Creating the post pagination indexes failed", e);
+        }
+    }
+}
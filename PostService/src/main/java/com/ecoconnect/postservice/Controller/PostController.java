@@ -1,15 +1,31 @@
 package com.ecoconnect.postservice.Controller;
 
+import com.ecoconnect.postservice.Model.BulkPostResult;
 import com.ecoconnect.postservice.Model.Post;
+import com.ecoconnect.postservice.Model.PostCursor;
+import com.ecoconnect.postservice.Model.PostEngagement;
+import com.ecoconnect.postservice.Model.PostPage;
+import com.ecoconnect.postservice.Model.PostSearchResult;
+import com.ecoconnect.postservice.Service.EngagementCounters;
 import com.ecoconnect.postservice.Service.PostService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -17,11 +33,23 @@ import java.util.Optional;
 @Slf4j
 public class PostController {
 
+    // Opaque cursor for the next (older) page; absent on the last page
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String SEARCH_TRUNCATED_HEADER = "X-Search-Truncated";
+
+    private static final String NDJSON = "application/x-ndjson";
+
     private final PostService postService;
 
+    private final EngagementCounters engagementCounters;
+
+    private final ObjectMapper objectMapper;
+
     @Autowired
-    public PostController(PostService postService) {
+    public PostController(PostService postService, EngagementCounters engagementCounters, ObjectMapper objectMapper) {
         this.postService = postService;
+        this.engagementCounters = engagementCounters;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/createPost")
@@ -32,10 +60,35 @@ public class PostController {
         return createdPost;
     }
 
+    // Posts as newline-delimited JSON, answered with one NDJSON result per post, in order, as each chunk is stored
+    @PostMapping(value = "/bulkCreatePosts", consumes = NDJSON, produces = NDJSON)
+    public void bulkCreatePosts(InputStream body, HttpServletResponse response) throws IOException
+    {
+        response.setContentType(NDJSON);
+        OutputStream out = response.getOutputStream();
+        long[] counts = new long[2];
+        try (MappingIterator<Post> posts = objectMapper.readerFor(Post.class).readValues(body)) {
+            postService.bulkAddPosts(posts, results -> {
+                try {
+                    for (BulkPostResult result : results) {
+                        counts[result.getStatus() == BulkPostResult.Status.CREATED ? 0 : 1]++;
+                        out.write(objectMapper.writeValueAsBytes(result));
+                        out.write('\n');
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        log.info("Bulk import created " + counts[0] + " posts, " + counts[1] + " failed");
+    }
+
+    // Newest first, limit posts per page; the next page is fetched with the cursor from the X-Next-Cursor header
     @GetMapping("/getUserPosts/{userId}")
-    public List<Post> getAllPostsByUserId(@PathVariable String userId)
+    public ResponseEntity<List<Post>> getAllPostsByUserId(@PathVariable String userId, @RequestParam(defaultValue = "50") int limit, @RequestParam(required = false) String cursor)
     {
-        return postService.getPostsByAuthorId(userId);
+        return getPostsPage(userId, limit, cursor);
     }
 
     @PutMapping("/updatePost/{userId}/{postId}")
@@ -54,23 +107,86 @@ public class PostController {
         log.info("Post deleted with id: " + postId);
     }
     @GetMapping("/getAllPosts")
-    public ResponseEntity<List<Post>> getAllPostsByUserId()
+    public ResponseEntity<List<Post>> getAllPostsByUserId(@RequestParam(defaultValue = "50") int limit, @RequestParam(required = false) String cursor)
     {
         log.info("Received request to get all posts");
-        List<Post> posts = postService.getAllPosts();
-        if(posts.isEmpty()) {
+        ResponseEntity<List<Post>> response = getPostsPage(null, limit, cursor);
+        if(cursor == null && response.getBody() != null && response.getBody().isEmpty()) {
             log.info("No Posts found ");
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(posts);
+        return response;
+    }
+
+    // Every post, or every post of one author, as newline-delimited JSON streamed from the database
+    @GetMapping(value = "/exportPosts", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportPosts(@RequestParam(required = false) String authorId)
+    {
+        log.info("Received request to export posts" + (authorId != null ? " of " + authorId : ""));
+        StreamingResponseBody body = out -> {
+            long exported = postService.exportPosts(authorId, out);
+            log.info("Exported " + exported + " posts");
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+    // Engagement counts are buffered and written behind, so these return 202 before the counts are stored; 404 for unknown posts
+    @PostMapping("/likePost/{postId}")
+    public ResponseEntity<Void> likePost(@PathVariable String postId)
+    {
+        return engagementCounters.record(postId, 1, 0) ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/unlikePost/{postId}")
+    public ResponseEntity<Void> unlikePost(@PathVariable String postId)
+    {
+        return engagementCounters.record(postId, -1, 0) ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/commentPost/{postId}")
+    public ResponseEntity<Void> commentPost(@PathVariable String postId)
+    {
+        return engagementCounters.record(postId, 0, 1) ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
     }
+
+    @PostMapping("/uncommentPost/{postId}")
+    public ResponseEntity<Void> uncommentPost(@PathVariable String postId)
+    {
+        return engagementCounters.record(postId, 0, -1) ? ResponseEntity.accepted().build() : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/getEngagement")
+    public Map<String, PostEngagement> getEngagement(@RequestParam List<String> postIds)
+    {
+        return engagementCounters.getCounts(postIds);
+    }
+
     @GetMapping("/searchPosts")
-    public List<Post> searchPosts(
+    public ResponseEntity<List<Post>> searchPosts(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fromDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime toDate,
             @RequestParam(required = false) String userId,
             @RequestParam(required = false) String content) {
-        return postService.searchPosts(fromDate, toDate, userId, content);
+        PostSearchResult result = postService.searchPosts(fromDate, toDate, userId, content);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        // A prefix in the query matched more terms than are expanded, so some matching posts may be missing
+        if (result.isTruncated())
+            response.header(SEARCH_TRUNCATED_HEADER, "true");
+        return response.body(result.getPosts());
     }
 
-}
\ No newline at end of file
+    private ResponseEntity<List<Post>> getPostsPage(String authorId, int limit, String cursor)
+    {
+        PostCursor postCursor;
+        try {
+            postCursor = cursor != null && !cursor.isEmpty() ? PostCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        PostPage page = postService.getPostsPage(authorId, limit, postCursor);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null)
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        return response.body(page.getPosts());
+    }
+}
@@ -0,0 +1,27 @@
+package com.ecoconnect.postservice.Model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Outcome of one post of a bulk import, by its position in the request
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkPostResult {
+
+    public enum Status { CREATED, FAILED }
+
+    private final long index;
+    private final String postId;
+    private final Status status;
+    private final String error;
+
+    public static BulkPostResult created(long index, String postId) {
+        return new BulkPostResult(index, postId, Status.CREATED, null);
+    }
+
+    public static BulkPostResult failed(long index, String postId, String error) {
+        return new BulkPostResult(index, postId, Status.FAILED, error);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ecoconnect.postservice.Model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// A Kafka message written in the same transaction as the post change it describes; OutboxRelay publishes it
+@Document(collection = "post_outbox")
+@Data
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    private ObjectId id;
+
+    private String topic;
+
+    private String messageKey;
+
+    private String payload;
+
+    // Position among the events of the same messageKey, allocated in the writing transaction; the relay
+    // publishes a key's events in this order, since _id order across instances follows their clocks
+    private long sequence;
+
+    private Instant createdAt;
+
+    // Set once Kafka has acknowledged the message; null while pending
+    private Instant sentAt;
+
+    public OutboxEvent(String topic, String messageKey, String payload, long sequence) {
+        this.topic = topic;
+        this.messageKey = messageKey;
+        this.payload = payload;
+        this.sequence = sequence;
+        this.createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,36 @@
+package com.ecoconnect.postservice.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Opaque keyset pagination cursor: the (createdDate, postId) of the last post the client has seen
+@Getter
+@AllArgsConstructor
+public class PostCursor {
+
+    private final LocalDateTime createdDate;
+    private final String postId;
+
+    public static PostCursor after(Post post) {
+        return new PostCursor(post.getCreatedDate(), post.getPostId());
+    }
+
+    public static PostCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|'); // Dates never contain it; post ids might
+            return new PostCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid post cursor: " + token, e);
+        }
+    }
+
+    public String encode() {
+        String raw = createdDate + "|" + postId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
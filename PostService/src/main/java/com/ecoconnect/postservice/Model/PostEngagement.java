@@ -0,0 +1,22 @@
+package com.ecoconnect.postservice.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+// Like and comment counts of a post, kept apart from the post so counting never contends with edits
+@Document(collection = "post_engagement")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostEngagement {
+
+    @Id
+    private String postId;
+
+    private long likes;
+
+    private long comments;
+}
@@ -0,0 +1,15 @@
+package com.ecoconnect.postservice.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// One page of posts, newest first, and the cursor of the next page (null on the last page)
+@Getter
+@AllArgsConstructor
+public class PostPage {
+
+    private final List<Post> posts;
+    private final String nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.ecoconnect.postservice.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Posts matching a search, newest first; truncated when a prefix matched too many terms and some posts may be missing
+@Getter
+@AllArgsConstructor
+public class PostSearchResult {
+
+    private final List<Post> posts;
+    private final boolean truncated;
+}
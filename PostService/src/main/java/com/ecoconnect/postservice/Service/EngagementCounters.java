@@ -0,0 +1,273 @@
+package com.ecoconnect.postservice.Service;
+
+import com.ecoconnect.postservice.Model.Post;
+import com.ecoconnect.postservice.Model.PostEngagement;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.bulk.BulkWriteError;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Like and comment counters of posts, with write-behind to the post_engagement collection.
+ * Increments only touch one of posts.engagement.stripes in-memory stripes, picked by thread, so writers
+ * of a viral post don't queue behind each other, nor behind a single document in Mongo. Every
+ * posts.engagement.flush-interval the stripes are swapped out, merged per post and written as one
+ * unordered bulk of upserts that add them, never letting a total drop below zero; a failed flush keeps its
+ * deltas for the next one. Increments are only accepted for posts that exist (looked up once and cached
+ * like the counts), and a flush skips posts that no longer exist, e.g. ones deleted on another instance.
+ * The new totals of the flushed posts are then read back in one query, put in the read cache and
+ * published to the compacted post-engagement topic, keyed by postId, so consumers such as FeedService
+ * can keep counts for every post without asking for them. A deleted post gets a tombstone; its pending
+ * deltas are dropped, and deltas recorded for it until the next flush are discarded, so nothing
+ * recreates its counts after the tombstone. Removal and flushing never overlap.
+ * Reads come from the cache (loaded in bulk from Mongo on a miss); other instances' increments become
+ * visible after a flush there plus at most posts.engagement.cache-ttl.
+ */
+@Service
+@Slf4j
+public class EngagementCounters implements ApplicationRunner {
+
+    public static final String TOPIC = "post-engagement";
+    private static final int READ_BACK_CHUNK = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final Stripe[] stripes;
+    private final Cache<String, PostEngagement> cache;
+    private final Cache<String, Boolean> postExists;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Set<String> deletedSinceFlush = ConcurrentHashMap.newKeySet();
+    private volatile Set<String> deletedBeforeLastFlush = Collections.emptySet();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "engagement-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${posts.engagement.flush-interval:PT1S}")
+    private Duration flushInterval;
+
+    @Autowired
+    public EngagementCounters(MongoTemplate mongoTemplate, KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper,
+                              @Value("${posts.engagement.stripes:16}") int stripeCount,
+                              @Value("${posts.engagement.cache-size:100000}") long cacheSize,
+                              @Value("${posts.engagement.cache-ttl:PT30S}") Duration cacheTtl) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.stripes = new Stripe[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe();
+        this.cache = Caffeine.newBuilder().maximumSize(cacheSize).expireAfterWrite(cacheTtl).build();
+        this.postExists = Caffeine.newBuilder().maximumSize(cacheSize).expireAfterWrite(cacheTtl).build();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+
+    // False when there is no such post, in which case nothing is recorded
+    public boolean record(String postId, long likes, long comments) {
+        if (deletedSinceFlush.contains(postId) || deletedBeforeLastFlush.contains(postId))
+            return false;
+        if (!postExists.get(postId, id -> mongoTemplate.exists(Query.query(Criteria.where("_id").is(id)), Post.class)))
+            return false;
+        stripes[(int) (Thread.currentThread().getId() % stripes.length)].add(postId, likes, comments);
+        return true;
+    }
+
+    // Counts of the given posts, zero for posts nobody engaged with yet
+    public Map<String, PostEngagement> getCounts(Collection<String> postIds) {
+        return cache.getAll(new LinkedHashSet<>(postIds), this::load);
+    }
+
+    public void remove(String postId) {
+        flushLock.lock();
+        try {
+            deletedSinceFlush.add(postId);
+            for (Stripe stripe : stripes)
+                stripe.drop(postId);
+            mongoTemplate.remove(Query.query(Criteria.where("postId").is(postId)), PostEngagement.class);
+            cache.invalidate(postId);
+            postExists.put(postId, Boolean.FALSE);
+            kafkaTemplate.send(TOPIC, postId, null);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private Map<String, PostEngagement> load(Set<? extends String> postIds) {
+        Map<String, PostEngagement> loaded = new HashMap<>();
+        for (String postId : postIds)
+            loaded.put(postId, new PostEngagement(postId, 0, 0));
+        mongoTemplate.find(Query.query(Criteria.where("postId").in(postIds)), PostEngagement.class)
+                .forEach(engagement -> loaded.put(engagement.getPostId(), engagement));
+        return loaded;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Flushing engagement counters failed", e);
+        }
+    }
+
+    // Writes the deltas gathered since the last flush and publishes the resulting totals
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        Map<String, long[]> deltas = new HashMap<>();
+        for (Stripe stripe : stripes)
+            stripe.drainInto(deltas);
+        // Deltas recorded after a removal belong to a deleted post. Ids are kept for one more flush, for
+        // increments that passed the check in record() just before the removal but landed after this drain
+        Set<String> deleted = new HashSet<>(deletedSinceFlush);
+        deletedSinceFlush.removeAll(deleted);
+        deltas.keySet().removeAll(deleted);
+        deltas.keySet().removeAll(deletedBeforeLastFlush);
+        deletedBeforeLastFlush = deleted;
+        deltas.values().removeIf(delta -> delta[0] == 0 && delta[1] == 0);
+        dropMissingPosts(deltas);
+        if (deltas.isEmpty())
+            return;
+
+        List<String> postIds = new ArrayList<>(deltas.keySet());
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PostEngagement.class);
+        for (String postId : postIds) {
+            long[] delta = deltas.get(postId);
+            bulk.upsert(Query.query(Criteria.where("postId").is(postId)),
+                    AggregationUpdate.update().set("likes").toValue(addFloored("likes", delta[0]))
+                            .set("comments").toValue(addFloored("comments", delta[1])));
+        }
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // The other updates were applied; only the failed deltas are kept for the next flush
+            for (BulkWriteError error : e.getErrors()) {
+                String postId = postIds.get(error.getIndex());
+                stripes[0].add(postId, deltas.get(postId)[0], deltas.get(postId)[1]);
+            }
+            log.error("Flushing engagement counters failed for " + e.getErrors().size() + " posts");
+        } catch (RuntimeException e) {
+            // Nothing is known to be applied; keep the deltas for the next flush
+            deltas.forEach((postId, delta) -> stripes[0].add(postId, delta[0], delta[1]));
+            throw e;
+        }
+
+        for (int from = 0; from < postIds.size(); from += READ_BACK_CHUNK) {
+            List<String> chunk = postIds.subList(from, Math.min(postIds.size(), from + READ_BACK_CHUNK));
+            for (PostEngagement engagement : mongoTemplate.find(Query.query(Criteria.where("postId").in(chunk)), PostEngagement.class)) {
+                cache.put(engagement.getPostId(), engagement);
+                publish(engagement);
+            }
+        }
+        log.debug("Flushed engagement counters of " + postIds.size() + " posts");
+    }
+
+    // Posts deleted elsewhere, or before this instance cached their existence, must not get counts again
+    private void dropMissingPosts(Map<String, long[]> deltas) {
+        if (deltas.isEmpty())
+            return;
+        Set<String> existing = new HashSet<>();
+        List<String> postIds = new ArrayList<>(deltas.keySet());
+        for (int from = 0; from < postIds.size(); from += READ_BACK_CHUNK) {
+            Query chunk = Query.query(Criteria.where("_id").in(postIds.subList(from, Math.min(postIds.size(), from + READ_BACK_CHUNK))));
+            chunk.fields().include("_id");
+            mongoTemplate.find(chunk, Document.class, mongoTemplate.getCollectionName(Post.class))
+                    .forEach(post -> existing.add(String.valueOf(post.get("_id"))));
+        }
+        deltas.keySet().retainAll(existing);
+    }
+
+    // field + delta, floored at zero, so an unlike without a like can't leave a negative total
+    private static Document addFloored(String field, long delta) {
+        Document sum = new Document("$add", List.of(new Document("$ifNull", List.of("$" + field, 0L)), delta));
+        return new Document("$max", List.of(0L, sum));
+    }
+
+    private void publish(PostEngagement engagement) {
+        try {
+            Map<String, Object> message = new HashMap<>();
+            message.put("messageType", "ENGAGEMENT_UPDATED");
+            message.put("postId", engagement.getPostId());
+            message.put("likes", engagement.getLikes());
+            message.put("comments", engagement.getComments());
+            kafkaTemplate.send(TOPIC, engagement.getPostId(), objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.error("Publishing engagement of " + engagement.getPostId() + " failed", e);
+        }
+    }
+
+    // Pending deltas of the posts incremented on this stripe: postId -> {likes, comments}
+    private static class Stripe {
+        private Map<String, long[]> deltas = new HashMap<>();
+
+        synchronized void add(String postId, long likes, long comments) {
+            long[] delta = deltas.computeIfAbsent(postId, id -> new long[2]);
+            delta[0] += likes;
+            delta[1] += comments;
+        }
+
+        synchronized void drop(String postId) {
+            deltas.remove(postId);
+        }
+
+        void drainInto(Map<String, long[]> merged) {
+            Map<String, long[]> drained;
+            synchronized (this) {
+                drained = deltas;
+                deltas = new HashMap<>();
+            }
+            drained.forEach((postId, delta) -> {
+                long[] total = merged.computeIfAbsent(postId, id -> new long[2]);
+                total[0] += delta[0];
+                total[1] += delta[1];
+            });
+        }
+    }
+}
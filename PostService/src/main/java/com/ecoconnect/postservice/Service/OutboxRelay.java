@@ -0,0 +1,209 @@
+package com.ecoconnect.postservice.Service;
+
+import com.ecoconnect.postservice.Model.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes the events PostPublisher writes to the post_outbox collection. One instance at a time holds
+ * the relay lease and drains pending events a batch at a time: the posts of the oldest pending events,
+ * each with all its pending events in sequence order. The first event of every post is handed to the
+ * producer (compressed and idempotent, see application.properties) at once, and a post's next event
+ * only after the previous one was acknowledged, so a failed send is never overtaken by a newer event
+ * of its post; that post resumes from it in a later batch. Acknowledgements are awaited for at most
+ * half the lease, and the lease is renewed before marking the acknowledged events sent; a relay that
+ * lost it marks nothing and leaves the batch to the new holder. Delivery is at least once: a resend
+ * repeats a post's events from the unacknowledged one on, and while an expired holder finishes its
+ * batch both relays may send the same events. Sent events expire after
+ * posts.outbox.retention. Commits wake the relay, and it also polls every posts.outbox.poll-interval.
+ */
+@Service
+@Slf4j
+public class OutboxRelay implements ApplicationRunner {
+
+    private static final String LEASE_COLLECTION = "post_outbox_lease";
+    private static final String LEASE_ID = "relay";
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final BlockingQueue<Boolean> wakeUps = new ArrayBlockingQueue<>(1);
+
+    @Value("${posts.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${posts.outbox.poll-interval:PT1S}")
+    private Duration pollInterval;
+
+    @Value("${posts.outbox.lease:PT15S}")
+    private Duration lease;
+
+    @Value("${posts.outbox.retention:P1D}")
+    private Duration retention;
+
+    @Autowired
+    public OutboxRelay(MongoTemplate mongoTemplate, KafkaTemplate<String, String> kafkaTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread relay = new Thread(this::relayLoop, "post-outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    // Called after a transaction with outbox events commits
+    public void wakeUp() {
+        wakeUps.offer(Boolean.TRUE);
+    }
+
+    private void relayLoop() {
+        boolean indexed = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            int relayed = 0;
+            try {
+                if (!indexed)
+                    indexed = ensureIndexes();
+                if (holdLease())
+                    relayed = relayBatch();
+            } catch (Exception e) {
+                log.error("Relaying post events failed, retrying", e);
+            }
+
+            // A full batch means more may be pending; otherwise wait for a commit or the next poll
+            if (relayed < batchSize) {
+                try {
+                    wakeUps.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // Publishes the oldest pending events and returns how many were acknowledged
+    public int relayBatch() {
+        Query oldest = Query.query(Criteria.where("sentAt").is(null))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+        Set<String> keys = new LinkedHashSet<>();
+        for (OutboxEvent event : mongoTemplate.find(oldest, OutboxEvent.class))
+            keys.add(event.getMessageKey());
+        if (keys.isEmpty())
+            return 0;
+
+        // _id comes from the writers' clocks, so across instances it isn't commit order: take every pending
+        // event of the batch's posts and publish each post's in sequence order
+        Query pendingOfKeys = Query.query(Criteria.where("sentAt").is(null).and("messageKey").in(keys))
+                .with(Sort.by(Sort.Direction.ASC, "sequence", "_id"));
+        Map<String, List<OutboxEvent>> eventsByKey = new LinkedHashMap<>();
+        for (OutboxEvent event : mongoTemplate.find(pendingOfKeys, OutboxEvent.class))
+            eventsByKey.computeIfAbsent(event.getMessageKey(), key -> new ArrayList<>()).add(event);
+
+        // Round n sends the n-th event of every post still going, so a post's next event is only sent once
+        // the previous one is acknowledged; after a failure the rest of that post waits for the next batch.
+        // Waiting stops well within the lease, so it can still be renewed before marking
+        long deadline = System.nanoTime() + lease.toNanos() / 2;
+        List<ObjectId> acknowledged = new ArrayList<>();
+        List<List<OutboxEvent>> going = new ArrayList<>(eventsByKey.values());
+        int total = going.stream().mapToInt(List::size).sum();
+        for (int round = 0; !going.isEmpty() && !Thread.currentThread().isInterrupted(); round++) {
+            List<CompletableFuture<?>> sends = new ArrayList<>(going.size());
+            for (List<OutboxEvent> events : going) {
+                OutboxEvent event = events.get(round);
+                sends.add(kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload()));
+            }
+            List<List<OutboxEvent>> next = new ArrayList<>(going.size());
+            for (int i = 0; i < sends.size(); i++) {
+                OutboxEvent event = going.get(i).get(round);
+                if (awaitAcknowledged(sends.get(i), event, deadline)) {
+                    acknowledged.add(event.getId());
+                    if (going.get(i).size() > round + 1)
+                        next.add(going.get(i));
+                }
+            }
+            going = next;
+        }
+
+        // Another instance may have taken over meanwhile and be relaying the same events; it marks them then
+        if (!acknowledged.isEmpty() && !holdLease()) {
+            log.warn("Lost the outbox relay lease during a batch of " + total + " post events");
+            return 0;
+        }
+        if (!acknowledged.isEmpty())
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(acknowledged)),
+                    Update.update("sentAt", Instant.now()), OutboxEvent.class);
+        log.debug("Relayed " + acknowledged.size() + " of " + total + " post events");
+        return acknowledged.size();
+    }
+
+    private boolean awaitAcknowledged(CompletableFuture<?> send, OutboxEvent event, long deadline) {
+        try {
+            send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            log.warn("Post event " + event.getId() + " was not acknowledged in time, resending from it");
+        } catch (Exception e) {
+            log.error("Publishing post event " + event.getId() + " failed", e);
+        }
+        return false;
+    }
+
+    // Takes or renews the lease when it is free, expired or already ours
+    private boolean holdLease() {
+        Instant now = Instant.now();
+        Query claimable = Query.query(Criteria.where("_id").is(LEASE_ID)
+                .orOperator(Criteria.where("owner").is(instanceId), Criteria.where("until").lt(now)));
+        Update claim = Update.update("owner", instanceId).set("until", now.plus(lease));
+        try {
+            Document held = mongoTemplate.findAndModify(claimable, claim,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, LEASE_COLLECTION);
+            return held != null && instanceId.equals(held.getString("owner"));
+        } catch (DuplicateKeyException e) {
+            return false; // Held by another instance
+        }
+    }
+
+    private boolean ensureIndexes() {
+        var indexOps = mongoTemplate.indexOps(OutboxEvent.class);
+        indexOps.ensureIndex(new Index().named("pending").on("sentAt", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+        indexOps.ensureIndex(new Index().named("pending_by_key").on("messageKey", Sort.Direction.ASC)
+                .on("sentAt", Sort.Direction.ASC).on("sequence", Sort.Direction.ASC));
+        indexOps.ensureIndex(new Index().named("sent_ttl").on("sentAt", Sort.Direction.ASC).expire(retention));
+        return true;
+    }
+}
@@ -1,21 +1,42 @@
 package com.ecoconnect.postservice.Service;
 
+import com.ecoconnect.postservice.Model.OutboxEvent;
+import com.ecoconnect.postservice.Model.Post;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+// Writes post events to the outbox in the caller's transaction; OutboxRelay publishes them to Kafka.
+// Each event takes the next number from its post's counter in post_outbox_sequence, in the same
+// transaction, so a post's sequence numbers follow the order its changes committed
 @Service
 public class PostPublisher {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    static final String TOPIC = "post-notifications";
+    static final String SEQUENCE_COLLECTION = "post_outbox_sequence";
+
+    private final MongoTemplate mongoTemplate;
+    private final OutboxRelay outboxRelay;
     private final ObjectMapper objectMapper;
 
     @Autowired
-    public PostPublisher(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
-        this.kafkaTemplate = kafkaTemplate;
+    public PostPublisher(MongoTemplate mongoTemplate, OutboxRelay outboxRelay, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.outboxRelay = outboxRelay;
         this.objectMapper = objectMapper;
     }
 
@@ -34,7 +55,58 @@ public class PostPublisher {
         publishEvent("POST_DELETED", postId, authorId, null, null);
     }
 
+    // POST_CREATED for every post of a bulk import, inserted into the outbox in one insertMany in the caller's transaction
+    public void publishPostsCreated(List<Post> posts) {
+        if (posts.isEmpty())
+            return;
+        // Counters normally don't exist yet, but an imported postId may reuse the id of a deleted post
+        List<String> postIds = posts.stream().map(Post::getPostId).toList();
+        Map<String, Long> lastSequences = new HashMap<>();
+        for (Document counter : mongoTemplate.find(Query.query(Criteria.where("_id").in(postIds)), Document.class, SEQUENCE_COLLECTION))
+            lastSequences.put(counter.getString("_id"), counter.get("sequence", Number.class).longValue());
+
+        BulkOperations counters = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SEQUENCE_COLLECTION);
+        List<OutboxEvent> events = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            long sequence = lastSequences.getOrDefault(post.getPostId(), 0L) + 1;
+            counters.upsert(Query.query(Criteria.where("_id").is(post.getPostId())), Update.update("sequence", sequence));
+            events.add(toEvent("POST_CREATED", post.getPostId(), post.getAuthorId(), post.getContent(), post.getCreatedDate().toString(), sequence));
+        }
+        counters.execute();
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxEvent.class).insert(events).execute();
+        wakeUpRelay();
+    }
+
     private void publishEvent(String messageType, String postId, String authorId, String content, String timestamp) {
+        mongoTemplate.insert(toEvent(messageType, postId, authorId, content, timestamp, nextSequence(postId)));
+        wakeUpRelay();
+    }
+
+    // Writing the counter also makes concurrent transactions on the same post conflict, so only one commits
+    private long nextSequence(String postId) {
+        Document counter = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(postId)),
+                new Update().inc("sequence", 1L), FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, SEQUENCE_COLLECTION);
+        return counter.get("sequence", Number.class).longValue();
+    }
+
+    // Once the caller's transaction, if any, has committed the events
+    private void wakeUpRelay() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxRelay.wakeUp();
+                }
+            });
+        } else {
+            outboxRelay.wakeUp();
+        }
+    }
+
+    // Keyed by postId so all events of a post stay on one partition, in order
+    private OutboxEvent toEvent(String messageType, String postId, String authorId, String content, String timestamp, long sequence) {
+        String jsonMessage;
         try {
             Map<String, Object> message = new HashMap<>();
             message.put("messageType", messageType);
@@ -43,11 +115,10 @@ public class PostPublisher {
             if (content != null) message.put("content", content);
             if (timestamp != null) message.put("timestamp", timestamp);
 
-            String jsonMessage = objectMapper.writeValueAsString(message);
-            kafkaTemplate.send("post-notifications", jsonMessage);
-
+            jsonMessage = objectMapper.writeValueAsString(message);
         } catch (Exception e) {
             throw new RuntimeException("Error serializing Kafka message", e);
         }
+        return new OutboxEvent(TOPIC, postId, jsonMessage, sequence);
     }
 }
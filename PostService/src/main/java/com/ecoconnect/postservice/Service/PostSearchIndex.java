@@ -0,0 +1,399 @@
+package com.ecoconnect.postservice.Service;
+
+import com.ecoconnect.postservice.Model.Post;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over post content, so a search costs time in proportion to its matches
+ * rather than to the size of the Posts collection.
+ * Content is lowercased and split into letter/digit tokens. Every indexed version of a post gets the
+ * next document number, and each term keeps a posting list of (document, positions) in document order,
+ * so new documents are simply appended. An update indexes the new content as a new document and
+ * tombstones the old one; postings are compacted once a quarter of the documents are dead.
+ * Queries are whitespace-separated clauses that must all match: a term, a prefix ("eco*") or a quoted
+ * phrase. Posting lists are intersected smallest first; author and date filters are checked on the
+ * surviving documents only. A prefix only expands to its first MAX_PREFIX_EXPANSION terms; results
+ * cut short that way are flagged as truncated.
+ * The index is built from Mongo by PostSearchIndexSync, which then applies the changes made on every
+ * instance; until the build is done isReady() is false.
+ */
+@Component
+@Slf4j
+public class PostSearchIndex {
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final Pattern CLAUSE = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+    static final int MAX_PREFIX_EXPANSION = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<String, Integer> docByPostId = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>();
+    private final Set<String> removedWhileBuilding = new HashSet<>();
+    private int liveDocs;
+    private volatile boolean ready;
+
+    @Autowired
+    public PostSearchIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Streams the whole collection once. Posts written or deleted meanwhile are already indexed (or
+    // removed) by then, so the version streamed from Mongo, which may be older, is skipped
+    public boolean build() {
+        long started = System.currentTimeMillis();
+        try (var posts = mongoTemplate.stream(new Query(), Post.class)) {
+            posts.forEach(post -> {
+                lock.writeLock().lock();
+                try {
+                    if (!docByPostId.containsKey(post.getPostId()) && !removedWhileBuilding.contains(post.getPostId()))
+                        add(post.getPostId(), post.getAuthorId(), post.getCreatedDate(), post.getContent());
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+            lock.writeLock().lock();
+            try {
+                removedWhileBuilding.clear();
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Post search index built with " + liveDocs + " posts in " + (System.currentTimeMillis() - started) + " ms");
+            return true;
+        } catch (Exception e) {
+            log.error("Building the post search index failed, searches fall back to Mongo", e);
+            return false;
+        }
+    }
+
+    // Adds or replaces a post; createdDate may be null on an update, keeping the indexed one
+    public void index(String postId, String authorId, LocalDateTime createdDate, String content) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = docByPostId.get(postId);
+            if (previous != null) {
+                Doc old = docs.get(previous);
+                if (createdDate == null)
+                    createdDate = old.createdDate;
+                if (authorId == null)
+                    authorId = old.authorId;
+                kill(previous);
+            }
+            add(postId, authorId, createdDate, content);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String postId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByPostId.remove(postId);
+            if (doc != null)
+                kill(doc);
+            if (!ready)
+                removedWhileBuilding.add(postId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // postIds matching every clause of the query and the optional filters, newest first
+    public List<String> search(String query, String authorId, LocalDateTime fromDate, LocalDateTime toDate) {
+        return searchHits(query, authorId, fromDate, toDate).postIds();
+    }
+
+    // Like search, and whether a prefix had more terms than it was expanded to, so matches may be missing
+    public Hits searchHits(String query, String authorId, LocalDateTime fromDate, LocalDateTime toDate) {
+        List<Clause> clauses = parse(query);
+        lock.readLock().lock();
+        try {
+            if (clauses.isEmpty())
+                return new Hits(Collections.emptyList(), false);
+
+            // Smallest first, so every later step only walks what is still a candidate
+            List<int[]> lists = new ArrayList<>();
+            for (Clause clause : clauses)
+                lists.add(clause.candidates());
+            lists.sort(Comparator.comparingInt(list -> list.length));
+
+            int[] candidates = lists.get(0);
+            for (int i = 1; i < lists.size() && candidates.length > 0; i++)
+                candidates = intersect(candidates, lists.get(i));
+
+            List<Doc> matches = new ArrayList<>();
+            for (int docId : candidates) {
+                Doc doc = docs.get(docId);
+                if (!doc.live || !doc.matches(authorId, fromDate, toDate))
+                    continue;
+                if (clauses.stream().allMatch(clause -> clause.verify(docId)))
+                    matches.add(doc);
+            }
+            matches.sort(Comparator.comparing((Doc doc) -> doc.createdDate, Comparator.nullsLast(Comparator.reverseOrder())));
+            boolean truncated = clauses.stream().anyMatch(clause -> clause instanceof PrefixClause prefix && prefix.truncated);
+            return new Hits(matches.stream().map(doc -> doc.postId).toList(), truncated);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(String postId, String authorId, LocalDateTime createdDate, String content) {
+        int docId = docs.size();
+        docs.add(new Doc(postId, authorId, createdDate));
+        docByPostId.put(postId, docId);
+        liveDocs++;
+
+        List<String> tokens = tokenize(content);
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < tokens.size(); i++)
+            positions.computeIfAbsent(tokens.get(i), term -> new ArrayList<>()).add(i);
+        positions.forEach((term, at) -> postings.computeIfAbsent(term, t -> new PostingList())
+                .append(docId, at.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    private void kill(int docId) {
+        Doc doc = docs.get(docId);
+        if (doc.live) {
+            doc.live = false;
+            liveDocs--;
+        }
+    }
+
+    // Renumbers the live documents in order and drops dead postings and empty terms
+    private void compactIfNeeded() {
+        if (docs.size() < 1024 || liveDocs * 4 > docs.size() * 3)
+            return;
+
+        int[] renumbered = new int[docs.size()];
+        List<Doc> kept = new ArrayList<>(liveDocs);
+        for (int docId = 0; docId < docs.size(); docId++) {
+            Doc doc = docs.get(docId);
+            renumbered[docId] = doc.live ? kept.size() : -1;
+            if (doc.live) {
+                docByPostId.put(doc.postId, kept.size());
+                kept.add(doc);
+            }
+        }
+        docs.clear();
+        docs.addAll(kept);
+        postings.values().removeIf(list -> list.compact(renumbered));
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+            return tokens;
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find())
+            tokens.add(matcher.group());
+        return tokens;
+    }
+
+    private List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        if (query == null)
+            return clauses;
+        Matcher matcher = CLAUSE.matcher(query);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                List<String> phrase = tokenize(matcher.group(1));
+                if (phrase.size() == 1)
+                    clauses.add(new TermClause(phrase.get(0)));
+                else if (!phrase.isEmpty())
+                    clauses.add(new PhraseClause(phrase));
+            } else if (matcher.group(2).endsWith("*")) {
+                List<String> tokens = tokenize(matcher.group(2));
+                if (tokens.size() == 1)
+                    clauses.add(new PrefixClause(tokens.get(0)));
+                else
+                    tokens.forEach(token -> clauses.add(new TermClause(token)));
+            } else {
+                // A word like "e-waste" tokenizes to several terms; all of them must appear
+                tokenize(matcher.group(2)).forEach(token -> clauses.add(new TermClause(token)));
+            }
+        }
+        return clauses;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j])
+                i++;
+            else if (a[i] > b[j])
+                j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    public record Hits(List<String> postIds, boolean truncated) {
+    }
+
+    private interface Clause {
+        // Sorted document numbers that may match
+        int[] candidates();
+
+        // Final check for clauses that candidates() can over-approximate
+        default boolean verify(int docId) {
+            return true;
+        }
+    }
+
+    private class TermClause implements Clause {
+        final String term;
+
+        TermClause(String term) {
+            this.term = term;
+        }
+
+        public int[] candidates() {
+            PostingList list = postings.get(term);
+            return list != null ? list.docs() : new int[0];
+        }
+    }
+
+    private class PrefixClause implements Clause {
+        final String prefix;
+        boolean truncated;
+
+        PrefixClause(String prefix) {
+            this.prefix = prefix;
+        }
+
+        // Union of the posting lists of every term with the prefix, from the sorted term dictionary
+        public int[] candidates() {
+            BitSet union = new BitSet();
+            int expanded = 0;
+            for (PostingList list : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                if (expanded++ == MAX_PREFIX_EXPANSION) {
+                    truncated = true;
+                    break;
+                }
+                for (int docId : list.docs())
+                    union.set(docId);
+            }
+            return union.stream().toArray();
+        }
+    }
+
+    private class PhraseClause implements Clause {
+        final List<String> terms;
+
+        PhraseClause(List<String> terms) {
+            this.terms = terms;
+        }
+
+        public int[] candidates() {
+            int[] candidates = null;
+            for (String term : new LinkedHashSet<>(terms)) {
+                PostingList list = postings.get(term);
+                if (list == null)
+                    return new int[0];
+                candidates = candidates == null ? list.docs() : intersect(candidates, list.docs());
+            }
+            return candidates;
+        }
+
+        // The terms must appear at consecutive positions
+        public boolean verify(int docId) {
+            int[] starts = postings.get(terms.get(0)).positions(docId);
+            for (int start : starts) {
+                boolean match = true;
+                for (int k = 1; k < terms.size() && match; k++)
+                    match = Arrays.binarySearch(postings.get(terms.get(k)).positions(docId), start + k) >= 0;
+                if (match)
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    // Document numbers in ascending order, each with the term's positions in that document
+    private static class PostingList {
+        private int[] docs = new int[2];
+        private int[][] positions = new int[2][];
+        private int size;
+
+        void append(int docId, int[] at) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            docs[size] = docId;
+            positions[size] = at;
+            size++;
+        }
+
+        int[] docs() {
+            return Arrays.copyOf(docs, size);
+        }
+
+        int[] positions(int docId) {
+            int i = Arrays.binarySearch(docs, 0, size, docId);
+            return i >= 0 ? positions[i] : new int[0];
+        }
+
+        // Returns true when nothing is left
+        boolean compact(int[] renumbered) {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                int docId = renumbered[docs[i]];
+                if (docId >= 0) {
+                    docs[n] = docId;
+                    positions[n] = positions[i];
+                    n++;
+                }
+            }
+            Arrays.fill(positions, n, size, null);
+            size = n;
+            return size == 0;
+        }
+    }
+
+    private static class Doc {
+        final String postId;
+        final String authorId;
+        final LocalDateTime createdDate;
+        boolean live = true;
+
+        Doc(String postId, String authorId, LocalDateTime createdDate) {
+            this.postId = postId;
+            this.authorId = authorId;
+            this.createdDate = createdDate;
+        }
+
+        boolean matches(String authorFilter, LocalDateTime fromDate, LocalDateTime toDate) {
+            if (authorFilter != null && !authorFilter.equals(authorId))
+                return false;
+            if (fromDate != null && (createdDate == null || createdDate.isBefore(fromDate)))
+                return false;
+            return toDate == null || (createdDate != null && !createdDate.isAfter(toDate));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.ecoconnect.postservice.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps this instance's PostSearchIndex in step with the posts written on every instance.
+ * The end offsets of post-notifications are taken before the index is built from Mongo; afterwards the
+ * events from those offsets on are applied, so nothing written during or after the build is missed.
+ * Events already contained in the build are applied again, which converges because each post's events
+ * are applied in order. The consumer is built without a group.id and its partitions are assigned
+ * manually, so every instance reads every partition and nothing is committed.
+ */
+@Component
+@Slf4j
+public class PostSearchIndexSync implements ApplicationRunner {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    private static final Duration SNAPSHOT_TIMEOUT = Duration.ofSeconds(10);
+
+    private final PostSearchIndex postSearchIndex;
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public PostSearchIndexSync(PostSearchIndex postSearchIndex, ConsumerFactory<?, ?> consumerFactory, ObjectMapper objectMapper) {
+        this.postSearchIndex = postSearchIndex;
+        this.consumerFactory = consumerFactory;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread sync = new Thread(this::buildAndFollow, "post-search-index");
+        sync.setDaemon(true);
+        sync.start();
+    }
+
+    private void buildAndFollow() {
+        try (Consumer<String, String> consumer = createConsumer()) {
+            Map<TopicPartition, Long> snapshot = snapshot(consumer);
+            if (!postSearchIndex.build())
+                return;
+
+            if (snapshot.isEmpty()) {
+                // Kafka wasn't reachable before the build: follow from the end, missing what was written meanwhile
+                log.warn("Post search index follows " + PostPublisher.TOPIC + " from its end; changes made during the build on other instances are missing");
+                List<TopicPartition> partitions = partitions(consumer, Duration.ofDays(1));
+                consumer.assign(partitions);
+                consumer.seekToEnd(partitions);
+            } else {
+                consumer.assign(snapshot.keySet());
+                snapshot.forEach(consumer::seek);
+            }
+
+            while (!Thread.currentThread().isInterrupted()) {
+                for (ConsumerRecord<String, String> record : consumer.poll(POLL_TIMEOUT))
+                    apply(record.value());
+            }
+        } catch (Exception e) {
+            log.error("Following " + PostPublisher.TOPIC + " for the search index stopped", e);
+        }
+    }
+
+    // The factory's connection settings without its group: createConsumer(null, ...) would fall back to the shared group.id
+    private Consumer<String, String> createConsumer() {
+        Map<String, Object> config = new HashMap<>(consumerFactory.getConfigurationProperties());
+        config.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.CLIENT_ID_CONFIG, "post-search-index-" + UUID.randomUUID());
+        return new KafkaConsumer<>(config, new StringDeserializer(), new StringDeserializer());
+    }
+
+    private Map<TopicPartition, Long> snapshot(Consumer<String, String> consumer) {
+        try {
+            List<TopicPartition> partitions = partitions(consumer, SNAPSHOT_TIMEOUT);
+            return partitions.isEmpty() ? Collections.emptyMap() : consumer.endOffsets(partitions, SNAPSHOT_TIMEOUT);
+        } catch (Exception e) {
+            log.warn("Could not read the offsets of " + PostPublisher.TOPIC + " before building the search index: " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    private static List<TopicPartition> partitions(Consumer<String, String> consumer, Duration timeout) {
+        List<PartitionInfo> infos = consumer.partitionsFor(PostPublisher.TOPIC, timeout);
+        if (infos == null)
+            return Collections.emptyList();
+        return infos.stream().map(info -> new TopicPartition(info.topic(), info.partition())).toList();
+    }
+
+    void apply(String message) {
+        try {
+            JsonNode event = objectMapper.readTree(message);
+            String postId = event.path("postId").asText();
+            switch (event.path("messageType").asText()) {
+                case "POST_CREATED" -> postSearchIndex.index(postId, event.path("authorId").asText(),
+                        LocalDateTime.parse(event.path("timestamp").asText()), event.path("content").asText());
+                // The timestamp of an update is its modification time; the index keeps the creation date it has
+                case "POST_UPDATED" -> postSearchIndex.index(postId, event.path("authorId").asText(), null, event.path("content").asText());
+                case "POST_DELETED" -> postSearchIndex.remove(postId);
+                default -> {
+                }
+            }
+        } catch (Exception e) {
+            log.error("Skipping post event the search index could not apply: " + message, e);
+        }
+    }
+}
@@ -1,18 +1,32 @@
 package com.ecoconnect.postservice.Service;
 
+import com.ecoconnect.postservice.Model.BulkPostResult;
 import com.ecoconnect.postservice.Model.Post;
+import com.ecoconnect.postservice.Model.PostCursor;
+import com.ecoconnect.postservice.Model.PostPage;
+import com.ecoconnect.postservice.Model.PostSearchResult;
 import com.ecoconnect.postservice.Repository.PostRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 @Service
@@ -25,20 +39,44 @@ public class PostService {
 
     private final PostPublisher postPublisher;
 
+    private final PostSearchIndex postSearchIndex;
+
+    private final ObjectMapper objectMapper;
+
+    private final EngagementCounters engagementCounters;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdDate"), Sort.Order.desc("postId"));
+
+    private static final int EXPORT_BATCH_SIZE = 500;
+
+    @Value("${posts.page.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${posts.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
     @Autowired
-    public PostService(PostRepository postRepository, MongoTemplate mongoTemplate, PostPublisher postPublisher) {
+    public PostService(PostRepository postRepository, MongoTemplate mongoTemplate, PostPublisher postPublisher, PostSearchIndex postSearchIndex, ObjectMapper objectMapper, EngagementCounters engagementCounters, TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+        this.engagementCounters = engagementCounters;
         this.postPublisher = postPublisher;
+        this.postSearchIndex = postSearchIndex;
+        this.objectMapper = objectMapper;
         this.postRepository = postRepository;
         this.mongoTemplate = mongoTemplate;
     }
 
+    @Transactional
     public Post addPost(Post post)
     {
         post.setCreatedDate(LocalDateTime.now());
         post.setLastModifiedDate(LocalDateTime.now());
         Post savedPost = postRepository.save(post);
+        afterCommit(() -> postSearchIndex.index(savedPost.getPostId(), savedPost.getAuthorId(), savedPost.getCreatedDate(), savedPost.getContent()));
 
-        // Publish POST_CREATED event
+        // POST_CREATED goes to the outbox in the same transaction as the post
         postPublisher.publishPostCreated(
                 savedPost.getPostId(),
                 savedPost.getAuthorId(),
@@ -49,16 +87,170 @@ public class PostService {
         return savedPost;
     }
 
+    /**
+     * Imports posts from an iterator (the request stream) in chunks of posts.bulk.chunk-size. Posts whose
+     * postId is already stored, or repeated within the chunk, fail as duplicates up front; the rest of the
+     * chunk is one insertMany plus one insertMany of their POST_CREATED outbox events, which OutboxRelay
+     * sends as producer batches, committed together in one transaction. If the transaction fails, every
+     * post of the chunk is reported failed and nothing of it is stored.
+     * Results are passed to onChunk, in request order, after every chunk. A post keeps its postId and
+     * createdDate when it has them, so a partly failed import can simply be rerun: stored posts already
+     * have their events, and fail as duplicates.
+     */
+    public void bulkAddPosts(Iterator<Post> posts, Consumer<List<BulkPostResult>> onChunk) {
+        long index = 0;
+        while (true) {
+            List<Post> chunk = new ArrayList<>(bulkChunkSize);
+            List<BulkPostResult> results = new ArrayList<>(bulkChunkSize);
+            List<Long> chunkIndexes = new ArrayList<>(bulkChunkSize);
+            String stopReason = null;
+            boolean exhausted = false;
+            while (chunk.size() + results.size() < bulkChunkSize) {
+                Post post;
+                try {
+                    if (!posts.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    post = posts.next();
+                } catch (RuntimeException e) {
+                    stopReason = "Malformed post, import stopped: " + e.getMessage();
+                    break;
+                }
+
+                if (post == null || post.getAuthorId() == null || post.getAuthorId().isEmpty() || post.getContent() == null) {
+                    results.add(BulkPostResult.failed(index++, post != null ? post.getPostId() : null, "authorId and content are required"));
+                    continue;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                if (post.getPostId() == null || post.getPostId().isEmpty())
+                    post.setPostId(new ObjectId().toHexString());
+                if (post.getCreatedDate() == null)
+                    post.setCreatedDate(now);
+                post.setLastModifiedDate(now);
+                chunk.add(post);
+                chunkIndexes.add(index++);
+            }
+
+            results.addAll(insertChunk(chunk, chunkIndexes));
+            if (stopReason != null)
+                results.add(BulkPostResult.failed(index, null, stopReason));
+            results.sort(Comparator.comparingLong(BulkPostResult::getIndex));
+            if (!results.isEmpty())
+                onChunk.accept(results);
+            if (exhausted || stopReason != null)
+                return;
+        }
+    }
+
+    private List<BulkPostResult> insertChunk(List<Post> chunk, List<Long> chunkIndexes) {
+        if (chunk.isEmpty())
+            return Collections.emptyList();
+
+        // A duplicate key would abort the whole transaction, so duplicates are sorted out first
+        Query existingQuery = Query.query(Criteria.where("_id").in(chunk.stream().map(Post::getPostId).toList()));
+        existingQuery.fields().include("_id");
+        Set<String> taken = new HashSet<>();
+        mongoTemplate.find(existingQuery, Document.class, mongoTemplate.getCollectionName(Post.class))
+                .forEach(post -> taken.add(String.valueOf(post.get("_id"))));
+
+        List<BulkPostResult> results = new ArrayList<>(chunk.size());
+        List<Post> toStore = new ArrayList<>(chunk.size());
+        List<Long> toStoreIndexes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Post post = chunk.get(i);
+            if (!taken.add(post.getPostId())) {
+                results.add(BulkPostResult.failed(chunkIndexes.get(i), post.getPostId(), "Duplicate postId " + post.getPostId()));
+            } else {
+                toStore.add(post);
+                toStoreIndexes.add(chunkIndexes.get(i));
+            }
+        }
+        if (toStore.isEmpty())
+            return results;
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                mongoTemplate.insert(toStore, Post.class);
+                postPublisher.publishPostsCreated(toStore);
+            });
+        } catch (RuntimeException e) {
+            // e.g. a post stored concurrently by another import; a rerun reports it as a duplicate
+            log.warn("Bulk import chunk of " + toStore.size() + " posts was rolled back: " + e.getMessage());
+            for (int i = 0; i < toStore.size(); i++)
+                results.add(BulkPostResult.failed(toStoreIndexes.get(i), toStore.get(i).getPostId(), "Chunk rolled back: " + e.getMessage()));
+            return results;
+        }
+
+        for (int i = 0; i < toStore.size(); i++) {
+            Post post = toStore.get(i);
+            results.add(BulkPostResult.created(toStoreIndexes.get(i), post.getPostId()));
+            postSearchIndex.index(post.getPostId(), post.getAuthorId(), post.getCreatedDate(), post.getContent());
+        }
+        return results;
+    }
+
     public Optional<Post> getPostByPostId(String postId)
     {
         return postRepository.findById(postId);
     }
 
-    public List<Post> getPostsByAuthorId(String userId)
-    {
-        return postRepository.findByAuthorIdOrderByCreatedDateDesc(userId);
+    // One page of posts, newest first, of one author or of everyone when authorId is null. Served by the
+    // indexes from PostIndexConfig: the page starts right after the cursor instead of skipping rows
+    public PostPage getPostsPage(String authorId, int limit, PostCursor cursor) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        Query query = pageQuery(authorId, cursor).limit(pageSize + 1);
+        List<Post> posts = mongoTemplate.find(query, Post.class);
+        if (posts.size() <= pageSize)
+            return new PostPage(posts, null);
+
+        posts = posts.subList(0, pageSize);
+        return new PostPage(posts, PostCursor.after(posts.get(pageSize - 1)).encode());
+    }
+
+    // Writes the posts as newline-delimited JSON straight from a Mongo cursor, so memory use doesn't grow with their number
+    public long exportPosts(String authorId, OutputStream out) throws IOException {
+        Query query = pageQuery(authorId, null).cursorBatchSize(EXPORT_BATCH_SIZE);
+        long written = 0;
+        try (var posts = mongoTemplate.stream(query, Post.class)) {
+            var iterator = posts.iterator();
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                out.write('\n');
+                if (++written % EXPORT_BATCH_SIZE == 0)
+                    out.flush();
+            }
+        }
+        out.flush();
+        return written;
     }
 
+    // The search index only sees changes that were committed
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Query pageQuery(String authorId, PostCursor cursor) {
+        Query query = new Query().with(NEWEST_FIRST);
+        if (authorId != null)
+            query.addCriteria(Criteria.where("authorId").is(authorId));
+        if (cursor != null)
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("createdDate").lt(cursor.getCreatedDate()),
+                    Criteria.where("createdDate").is(cursor.getCreatedDate()).and("postId").lt(cursor.getPostId())));
+        return query;
+    }
+
+    @Transactional
     public Optional<Post> updatePostByPostId(String userId, String postId, Post post, boolean isAdmin) {
         Optional<Post> postToBeUpdated = postRepository.findById(postId);
 
@@ -74,6 +266,7 @@ public class PostService {
             }).orElse(null);
             updatedPost.setLastModifiedDate(LocalDateTime.now());
             postRepository.save(updatedPost);
+            afterCommit(() -> postSearchIndex.index(updatedPost.getPostId(), updatedPost.getAuthorId(), updatedPost.getCreatedDate(), updatedPost.getContent()));
 
             postPublisher.publishPostUpdated(
                     updatedPost.getPostId(),
@@ -89,6 +282,7 @@ public class PostService {
     }
 
 
+    @Transactional
     public boolean deletePostByPostId(String userId, String postId, boolean isAdmin)
     {
         Optional<Post> postToBeDeleted = postRepository.findById(postId);
@@ -100,6 +294,10 @@ public class PostService {
             else
             {
                 postRepository.deleteById(postId);
+                afterCommit(() -> {
+                    postSearchIndex.remove(postId);
+                    engagementCounters.remove(postId);
+                });
                 postPublisher.publishPostDeleted(postId, userId);
                 return true;
             }
@@ -108,11 +306,16 @@ public class PostService {
             log.debug("Did not find the post to be deleted");
         return false;
     }
-    public List<Post> getAllPosts() {
-        List<Post> posts = postRepository.findAll();
-        return posts;
-    }
-    public List<Post> searchPosts(LocalDateTime fromDate, LocalDateTime toDate, String userId, String content) {
+    // Content is answered by the search index once it is built; the regex scan remains only for the time before that
+    public PostSearchResult searchPosts(LocalDateTime fromDate, LocalDateTime toDate, String userId, String content) {
+        String authorId = userId != null && !userId.isEmpty() ? userId : null;
+        if (content != null && !content.isBlank() && postSearchIndex.isReady()) {
+            PostSearchIndex.Hits hits = postSearchIndex.searchHits(content, authorId, fromDate, toDate);
+            Map<String, Post> postsById = new HashMap<>();
+            postRepository.findAllById(hits.postIds()).forEach(p -> postsById.put(p.getPostId(), p));
+            return new PostSearchResult(hits.postIds().stream().map(postsById::get).filter(Objects::nonNull).toList(), hits.truncated());
+        }
+
         List<Criteria> criteriaList = new ArrayList<>();
 
         if (fromDate != null) {
@@ -121,20 +324,20 @@ public class PostService {
         if (toDate != null) {
             criteriaList.add(Criteria.where("createdDate").lte(toDate));
         }
-        if (userId != null && !userId.isEmpty()) {
-            criteriaList.add(Criteria.where("userId").is(userId));
+        if (authorId != null) {
+            criteriaList.add(Criteria.where("authorId").is(authorId));
         }
         if (content != null && !content.isEmpty()) {
             criteriaList.add(Criteria.where("content").regex(Pattern.quote(content), "i"));
         }
 
         if (criteriaList.isEmpty()) {
-            return mongoTemplate.findAll(Post.class);
+            return new PostSearchResult(mongoTemplate.findAll(Post.class), false);
         }
 
         Criteria combinedCriteria = new Criteria().andOperator(criteriaList.toArray(new Criteria[0]));
         Query query = Query.query(combinedCriteria);
-        return mongoTemplate.find(query, Post.class);
+        return new PostSearchResult(mongoTemplate.find(query, Post.class), false);
 
     }
 }
\ No newline at end of file
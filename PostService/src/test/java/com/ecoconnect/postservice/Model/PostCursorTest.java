@@ -0,0 +1,57 @@
+package com.ecoconnect.postservice.Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostCursorTest {
+
+    @Test
+    void roundTripsCreatedDateAndPostId() {
+        LocalDateTime createdDate = LocalDateTime.of(2024, 3, 9, 17, 45, 12, 123_456_789);
+        PostCursor decoded = PostCursor.decode(new PostCursor(createdDate, "65f1c0ffee").encode());
+
+        assertEquals(createdDate, decoded.getCreatedDate());
+        assertEquals("65f1c0ffee", decoded.getPostId());
+    }
+
+    @Test
+    void afterTakesTheLastPostOfAPage() {
+        Post post = new Post();
+        post.setPostId("p9");
+        post.setCreatedDate(LocalDateTime.of(2024, 1, 1, 0, 0));
+
+        PostCursor cursor = PostCursor.after(post);
+        assertEquals("p9", cursor.getPostId());
+        assertEquals(post.getCreatedDate(), cursor.getCreatedDate());
+    }
+
+    @Test
+    void tokenIsUrlSafeWithoutPadding() {
+        String token = new PostCursor(LocalDateTime.of(2024, 1, 1, 0, 0), "a?b/c+d").encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void postIdMayContainTheSeparator() {
+        PostCursor decoded = PostCursor.decode(new PostCursor(LocalDateTime.of(2024, 1, 1, 0, 0), "a|b").encode());
+
+        assertEquals("a|b", decoded.getPostId());
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> PostCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> PostCursor.decode(encode("no separator")));
+        assertThrows(IllegalArgumentException.class, () -> PostCursor.decode(encode("yesterday|p1")));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
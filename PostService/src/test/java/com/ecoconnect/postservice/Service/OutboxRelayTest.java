@@ -0,0 +1,102 @@
+package com.ecoconnect.postservice.Service;
+
+import com.ecoconnect.postservice.Model.OutboxEvent;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    private MongoTemplate mongoTemplate;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        kafkaTemplate = mock(KafkaTemplate.class);
+        relay = new OutboxRelay(mongoTemplate, kafkaTemplate);
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        ReflectionTestUtils.setField(relay, "lease", Duration.ofSeconds(15));
+
+        Document lease = new Document("owner", ReflectionTestUtils.getField(relay, "instanceId"));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Document.class), anyString()))
+                .thenReturn(lease);
+        when(kafkaTemplate.send(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void publishesEachPostsEventsInSequenceOrder() {
+        // Written on an instance whose clock is ahead, so the later change has the smaller _id
+        OutboxEvent updated = event("p1", "updated", 2);
+        OutboxEvent created = event("p1", "created", 1);
+        OutboxEvent other = event("p2", "other", 1);
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class)))
+                .thenReturn(List.of(updated, other))
+                .thenReturn(List.of(created, other, updated));
+
+        assertEquals(3, relay.relayBatch());
+
+        InOrder inOrder = inOrder(kafkaTemplate);
+        inOrder.verify(kafkaTemplate).send(PostPublisher.TOPIC, "p1", "created");
+        inOrder.verify(kafkaTemplate).send(PostPublisher.TOPIC, "p1", "updated");
+        assertEquals(List.of(created.getId(), other.getId(), updated.getId()), markedSent());
+    }
+
+    @Test
+    void failedSendHoldsBackTheRestOfItsPostOnly() {
+        OutboxEvent first = event("p1", "first", 1);
+        OutboxEvent second = event("p1", "second", 2);
+        OutboxEvent other = event("p2", "other", 1);
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class)))
+                .thenReturn(List.of(first, second, other))
+                .thenReturn(List.of(first, other, second));
+        when(kafkaTemplate.send(PostPublisher.TOPIC, "p1", "first"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertEquals(1, relay.relayBatch());
+
+        verify(kafkaTemplate, never()).send(PostPublisher.TOPIC, "p1", "second");
+        assertEquals(List.of(other.getId()), markedSent());
+    }
+
+    @Test
+    void nothingPendingSendsNothing() {
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEvent.class))).thenReturn(List.of());
+
+        assertEquals(0, relay.relayBatch());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    private List<?> markedSent() {
+        ArgumentCaptor<Query> marked = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateMulti(marked.capture(), any(Update.class), eq(OutboxEvent.class));
+        return marked.getValue().getQueryObject().get("_id", Document.class).getList("$in", Object.class);
+    }
+
+    private static OutboxEvent event(String postId, String payload, long sequence) {
+        OutboxEvent event = new OutboxEvent(PostPublisher.TOPIC, postId, payload, sequence);
+        event.setId(new ObjectId());
+        return event;
+    }
+}
@@ -0,0 +1,206 @@
+package com.ecoconnect.postservice.Service;
+
+import com.ecoconnect.postservice.Model.Post;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostSearchIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private MongoTemplate mongoTemplate;
+    private PostSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        index = new PostSearchIndex(mongoTemplate);
+    }
+
+    @Test
+    void tokenizeLowercasesAndSplitsOnNonAlphanumerics() {
+        assertEquals(List.of("e", "waste", "drive", "2024", "café"), PostSearchIndex.tokenize("E-waste DRIVE, 2024! Café"));
+        assertTrue(PostSearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        index.index("p1", "a1", T0, "Solar panels on the roof");
+        index.index("p2", "a1", T0.plusHours(1), "Roof garden tips");
+
+        assertEquals(List.of("p2", "p1"), index.search("roof", null, null, null));
+        assertEquals(List.of("p1"), index.search("ROOF solar", null, null, null));
+        assertTrue(index.search("roof wind", null, null, null).isEmpty());
+    }
+
+    @Test
+    void hyphenatedWordRequiresAllItsParts() {
+        index.index("p1", "a1", T0, "Bring your e-waste here");
+        index.index("p2", "a1", T0, "No waste at all");
+
+        assertEquals(List.of("p1"), index.search("e-waste", null, null, null));
+    }
+
+    @Test
+    void phraseMatchesConsecutivePositionsOnly() {
+        index.index("p1", "a1", T0, "Community garden opens today");
+        index.index("p2", "a1", T0.plusHours(1), "The garden of the community");
+
+        assertEquals(List.of("p1"), index.search("\"community garden\"", null, null, null));
+        assertEquals(List.of("p2", "p1"), index.search("community garden", null, null, null));
+    }
+
+    @Test
+    void singleWordPhraseIsATerm() {
+        index.index("p1", "a1", T0, "Recycling day");
+
+        assertEquals(List.of("p1"), index.search("\"recycling\"", null, null, null));
+        assertTrue(index.search("\"\"", null, null, null).isEmpty());
+    }
+
+    @Test
+    void prefixExpandsToEveryTermWithIt() {
+        index.index("p1", "a1", T0, "Eco friendly");
+        index.index("p2", "a1", T0.plusHours(1), "Ecology class");
+        index.index("p3", "a1", T0.plusHours(2), "Economy news");
+        index.index("p4", "a1", T0.plusHours(3), "Recycle");
+
+        assertEquals(List.of("p3", "p2", "p1"), index.search("eco*", null, null, null));
+        assertEquals(List.of("p2"), index.search("ecol* class", null, null, null));
+        assertTrue(index.search("xyz*", null, null, null).isEmpty());
+    }
+
+    @Test
+    void prefixWithTooManyTermsIsReportedTruncated() {
+        for (int i = 0; i < PostSearchIndex.MAX_PREFIX_EXPANSION; i++)
+            index.index("p" + i, "a1", T0.plusMinutes(i), "tag" + i);
+
+        PostSearchIndex.Hits all = index.searchHits("tag*", null, null, null);
+        assertEquals(PostSearchIndex.MAX_PREFIX_EXPANSION, all.postIds().size());
+        assertFalse(all.truncated());
+
+        index.index("extra", "a1", T0, "tagextra");
+        PostSearchIndex.Hits cut = index.searchHits("tag*", null, null, null);
+        assertEquals(PostSearchIndex.MAX_PREFIX_EXPANSION, cut.postIds().size());
+        assertTrue(cut.truncated());
+        assertFalse(index.searchHits("tag1*", null, null, null).truncated());
+    }
+
+    @Test
+    void filtersByAuthorAndDateRange() {
+        index.index("p1", "a1", T0, "clean beach");
+        index.index("p2", "a2", T0.plusDays(1), "clean park");
+        index.index("p3", "a1", T0.plusDays(2), "clean river");
+
+        assertEquals(List.of("p3", "p1"), index.search("clean", "a1", null, null));
+        assertEquals(List.of("p2"), index.search("clean", null, T0.plusHours(1), T0.plusDays(1)));
+    }
+
+    @Test
+    void updateReplacesContentAndKeepsCreationDate() {
+        index.index("p1", "a1", T0, "old words");
+        index.index("p2", "a1", T0.plusHours(1), "new words");
+        index.index("p1", "a1", null, "fresh words");
+
+        assertTrue(index.search("old", null, null, null).isEmpty());
+        assertEquals(List.of("p1"), index.search("fresh", null, null, null));
+        assertEquals(List.of("p2", "p1"), index.search("words", null, null, null));
+    }
+
+    @Test
+    void removedPostIsNotFound() {
+        index.index("p1", "a1", T0, "tree planting");
+        index.remove("p1");
+
+        assertTrue(index.search("tree", null, null, null).isEmpty());
+    }
+
+    @Test
+    void emptyQueryMatchesNothing() {
+        index.index("p1", "a1", T0, "anything");
+
+        assertTrue(index.search("", null, null, null).isEmpty());
+        assertTrue(index.search(null, null, null, null).isEmpty());
+        assertTrue(index.search("  !! ", null, null, null).isEmpty());
+    }
+
+    @Test
+    void compactionRenumbersLiveDocumentsAndKeepsPositions() {
+        for (int i = 0; i < 1200; i++)
+            index.index("p" + i, "a1", T0.plusMinutes(i), (i % 2 == 0 ? "even" : "odd") + " green energy " + i);
+        // Past a quarter dead, postings are compacted and the survivors renumbered
+        for (int i = 0; i < 1000; i++)
+            index.remove("p" + i);
+
+        List<String> even = index.search("even", null, null, null);
+        assertEquals(100, even.size());
+        assertEquals("p1198", even.get(0));
+        assertEquals("p1000", even.get(even.size() - 1));
+        assertEquals(List.of("p1001"), index.search("\"odd green energy 1001\"", null, null, null));
+        assertTrue(index.search("999", null, null, null).isEmpty());
+
+        // Documents added after compaction get numbers after the renumbered ones
+        index.index("p1001", "a1", null, "odd green energy updated");
+        index.index("new", "a1", T0.plusDays(5), "green roof");
+        assertEquals(List.of("new"), index.search("\"green roof\"", null, null, null));
+        assertEquals(List.of("p1001"), index.search("updated", null, null, null));
+        assertEquals(201, index.search("green", null, null, null).size());
+    }
+
+    @Test
+    void buildSkipsPostsChangedOrRemovedWhileItRan() {
+        // Applied from post-notifications before the build reached these posts
+        index.index("edited", "a1", T0, "newer content");
+        index.remove("deleted");
+        when(mongoTemplate.stream(any(Query.class), eq(Post.class))).thenReturn(Stream.of(
+                post("edited", "older content"), post("deleted", "gone content"), post("kept", "kept content")));
+
+        assertFalse(index.isReady());
+        assertTrue(index.build());
+        assertTrue(index.isReady());
+
+        assertEquals(List.of("kept"), index.search("content kept", null, null, null));
+        assertEquals(List.of("edited"), index.search("newer", null, null, null));
+        assertTrue(index.search("older", null, null, null).isEmpty());
+        assertTrue(index.search("gone", null, null, null).isEmpty());
+    }
+
+    @Test
+    void removalsAfterTheBuildAreNotRemembered() {
+        when(mongoTemplate.stream(any(Query.class), eq(Post.class))).thenReturn(Stream.empty());
+        assertTrue(index.build());
+
+        index.remove("p1");
+        index.index("p1", "a1", T0, "back again");
+        assertEquals(List.of("p1"), index.search("back", null, null, null));
+    }
+
+    @Test
+    void failedBuildLeavesIndexNotReady() {
+        when(mongoTemplate.stream(any(Query.class), eq(Post.class))).thenThrow(new IllegalStateException("no Mongo"));
+
+        assertFalse(index.build());
+        assertFalse(index.isReady());
+    }
+
+    private static Post post(String postId, String content) {
+        Post post = new Post();
+        post.setPostId(postId);
+        post.setAuthorId("a1");
+        post.setCreatedDate(T0);
+        post.setContent(content);
+        return post;
+    }
+}
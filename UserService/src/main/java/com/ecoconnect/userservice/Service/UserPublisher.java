@@ -29,7 +29,7 @@ public class UserPublisher {
         message.put("followerEmail", followerEmail);
         message.put("followeeEmail", followeeEmail);
 
-        sendMessage("user-notifications", message);
+        sendMessage("user-notifications", followerId, message);
         System.out.println("User followed message sent");
     }
 
@@ -40,7 +40,7 @@ public class UserPublisher {
         message.put("followerId", followerId);
         message.put("followeeId", followeeId);
 
-        sendMessage("user-notifications", message);
+        sendMessage("user-notifications", followerId, message);
         System.out.println("User unfollowed message sent");
     }
 
@@ -50,15 +50,27 @@ public class UserPublisher {
         message.put("userId", userId);
         message.put("userName", userName);
 
-        sendMessage("user-notifications", message);
+        sendMessage("user-notifications", userId, message);
         System.out.println("User created message sent");
     }
 
-    // Generic method to send JSON messages
-    private void sendMessage(String topic, Map<String, Object> message) {
+    // Publish "USER_UPDATED" event so downstream caches pick up profile changes
+    public void publishUserUpdatedEvent(String userId, String userName){
+        Map<String, Object> message = new HashMap<>();
+        message.put("messageType", "USER_UPDATED");
+        message.put("userId", userId);
+        message.put("userName", userName);
+
+        sendMessage("user-notifications", userId, message);
+        System.out.println("User updated message sent");
+    }
+
+    // Generic method to send JSON messages, keyed by the user whose document they change
+    // (the follower for follow changes) so one user's events stay on one partition, in order
+    private void sendMessage(String topic, String key, Map<String, Object> message) {
         try {
             String jsonMessage = objectMapper.writeValueAsString(message);
-            kafkaTemplate.send(topic, jsonMessage);
+            kafkaTemplate.send(topic, key, jsonMessage);
         } catch (Exception e) {
             throw new RuntimeException("Error serializing Kafka message", e);
         }
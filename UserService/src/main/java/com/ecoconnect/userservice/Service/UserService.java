@@ -40,7 +40,9 @@ public class UserService {
         if(updatedUser.getLocation() != null){
             user.setLocation(updatedUser.getLocation());
         }
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        userPublisher.publishUserUpdatedEvent(savedUser.getId(), savedUser.getUserName());
+        return savedUser;
     }
 
     public List<User> getAllUsers()